@@ -0,0 +1,148 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Draws items with probability proportional to FIXED weights, in O(1) per draw.
+ *
+ * Walker's alias method (Vose's construction):
+ *   - scale the weights so they average 1
+ *   - split them into "small" (< 1) and "large" (>= 1)
+ *   - repeatedly fill a small column up to 1 with probability mass
+ *     borrowed from a large one, remembering who it was borrowed from
+ *
+ * After that every column i holds prob[i] of its own item and
+ * 1 - prob[i] of item alias[i]. A draw is:
+ *   1. pick a column i uniformly
+ *   2. keep items[i] with probability prob[i], else take items[alias[i]]
+ *
+ * Construction = O(n)
+ * sample()     = O(1)
+ *
+ * For weights that change (items added and removed), see WeightedRandomizedQueue.
+ */
+public class AliasSampler<Item> {
+
+    private final Item[] items;
+    private final double[] prob;
+    private final int[] alias;
+
+    /**
+     * Build the alias table. weights[i] is the relative weight of items[i].
+     */
+    public AliasSampler(Item[] items, double[] weights) {
+        if (items == null || weights == null || items.length != weights.length)
+            throw new IllegalArgumentException("Need one weight per item");
+        if (items.length == 0)
+            throw new IllegalArgumentException("Need at least one item");
+
+        int n = items.length;
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            if (items[i] == null)
+                throw new IllegalArgumentException("Cannot add null");
+            if (!(weights[i] > 0) || Double.isInfinite(weights[i]))
+                throw new IllegalArgumentException("Weights must be positive and finite");
+            total += weights[i];
+        }
+
+        this.items = items.clone();
+        this.prob = new double[n];
+        this.alias = new int[n];
+
+        // Work lists of column indices, kept as stacks in plain int arrays
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+
+            prob[s] = scaled[s];
+            alias[s] = l;
+
+            // l gave away (1 - scaled[s]) of its mass
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+
+        // Whatever is left is 1 up to rounding error
+        while (largeCount > 0)
+            prob[large[--largeCount]] = 1.0;
+        while (smallCount > 0)
+            prob[small[--smallCount]] = 1.0;
+        // O(n)
+    }
+
+    public int size() {
+        return items.length;
+        // O(1)
+    }
+
+    /**
+     * Return a random item, item i with probability weights[i] / total.
+     */
+    public Item sample() {
+        int i = StdRandom.uniform(items.length);
+        return StdRandom.uniform() < prob[i] ? items[i] : items[alias[i]];
+        // O(1)
+    }
+
+    /**
+     * Weigh each distinct string by how often it appears, e.g.
+     * "1 2 3 4 5 6 6 6 6 6" gives a die that rolls 6 half the time.
+     */
+    public static AliasSampler<String> fromFrequencies(Iterable<String> tokens) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String s : tokens)
+            counts.merge(s, 1, Integer::sum);
+
+        String[] keys = new String[counts.size()];
+        double[] weights = new double[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            keys[i] = e.getKey();
+            weights[i] = e.getValue();
+            i++;
+        }
+        return new AliasSampler<>(keys, weights);
+    }
+
+    /**
+     * Reads a distribution like data/loaded-die.txt from standard input
+     * and prints how often each outcome comes up in n draws.
+     *
+     * Example:
+     *   java AliasSampler 1000000 < data/loaded-die.txt
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+
+        AliasSampler<String> sampler = fromFrequencies(Arrays.asList(StdIn.readAllStrings()));
+
+        Map<String, Integer> seen = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++)
+            seen.merge(sampler.sample(), 1, Integer::sum);
+
+        for (Map.Entry<String, Integer> e : seen.entrySet())
+            System.out.printf("%-10s %.4f%n", e.getKey(), e.getValue() / (double) n);
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Splits a UTF-8 file into whitespace-separated tokens, fast.
+ *
+ * StdIn.readString() goes through a Scanner and a regex per token, which
+ * on big word lists costs far more than whatever we do with the tokens.
+ * Here instead:
+ *
+ *   1. The file is cut into CHUNKS of about chunkBytes each.
+ *   2. Each chunk is read into a byte[] with one positional read (no
+ *      shared file position, so workers don't interfere) and tokenized
+ *      on a worker thread, scanning raw bytes for whitespace.
+ *   3. The main thread hands the tokens of each chunk to the consumer,
+ *      in file order, while later chunks are still being tokenized.
+ *
+ * Chunk boundaries fall at arbitrary bytes, so we use one rule:
+ * a token belongs to the chunk in which it STARTS. A chunk skips a
+ * token that began in the previous chunk, and finishes a token that
+ * runs past its own end.
+ *
+ * Splitting on raw bytes is safe for UTF-8: every byte of a multi-byte
+ * character is >= 0x80, so it can never look like ASCII whitespace.
+ *
+ * Whitespace = the ASCII characters Java's Character.isWhitespace()
+ * accepts (space, \t, \n, \u000B, \f, \r, and 0x1C..0x1F). Unlike StdIn,
+ * non-ASCII whitespace (such as U+2003 EM SPACE) does not split tokens.
+ *
+ * At most 2 * threads chunks are in flight, so memory stays bounded
+ * however large the file is.
+ */
+public final class ChunkedTokenizer {
+
+    private static final int DEFAULT_CHUNK_BYTES = 1 << 20;   // 1 MiB
+
+    // Bytes past a chunk's end read up front, to finish its last token
+    private static final int TAIL_BYTES = 64 << 10;
+
+    private ChunkedTokenizer() { }
+
+    /**
+     * Pass every token in the file to sink, in order, using all cores.
+     */
+    public static void forEachToken(Path file, Consumer<String> sink) throws IOException {
+        forEachToken(file, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES, sink);
+    }
+
+    /**
+     * Pass every token in the file to sink, in order.
+     *
+     * sink is only ever called from the calling thread, so it does not
+     * need to be thread-safe (RandomizedQueue::enqueue is fine).
+     */
+    public static void forEachToken(Path file, int threads, int chunkBytes,
+                                    Consumer<String> sink) throws IOException {
+        if (threads <= 0 || chunkBytes <= 0)
+            throw new IllegalArgumentException("Threads and chunk size must be > 0");
+        if (sink == null)
+            throw new IllegalArgumentException("Sink is required");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            Deque<Future<List<String>>> inFlight = new Deque<>();
+            long next = 0;
+
+            while (next < size || !inFlight.isEmpty()) {
+                // Keep the workers busy, but only 2 * threads chunks ahead
+                while (next < size && inFlight.size() < 2 * threads) {
+                    long start = next;
+                    long end = Math.min(size, start + chunkBytes);
+                    inFlight.addLast(pool.submit(() -> tokenize(ch, start, end, size)));
+                    next = end;
+                }
+
+                for (String token : inFlight.removeFirst().get())
+                    sink.accept(token);
+            }
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException)
+                throw ((UncheckedIOException) cause).getCause();
+            throw new IllegalStateException("Tokenizer worker failed", cause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while tokenizing " + file, e);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Tokens that START in [start, end) of the file.
+     */
+    private static List<String> tokenize(FileChannel ch, long start, long end, long size) {
+        // Read one byte before the chunk (to see if a token runs into it)
+        // and a tail after it (to finish the last token)
+        long from = Math.max(0, start - 1);
+        long to = Math.min(size, end + TAIL_BYTES);
+        byte[] bytes = new byte[(int) (to - from)];
+
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, from + buf.position()) < 0)
+                    throw new IOException("File shrank while tokenizing it");
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int limit = (int) (end - from);   // chunk end, as an index into bytes
+        int i = (int) (start - from);
+
+        // Skip the rest of a token that started in the previous chunk
+        if (start > 0 && !isWhitespace(bytes[i - 1])) {
+            while (i < limit && !isWhitespace(bytes[i]))
+                i++;
+        }
+
+        List<String> tokens = new ArrayList<>();
+        while (true) {
+            while (i < limit && isWhitespace(bytes[i]))
+                i++;
+            if (i >= limit)
+                break;
+
+            int tokenStart = i;
+            while (i < bytes.length && !isWhitespace(bytes[i]))
+                i++;
+
+            if (i == bytes.length && from + i < size) {
+                // Token longer than the tail we read: read the rest directly
+                tokens.add(longToken(ch, bytes, tokenStart, from + i));
+                break;
+            }
+            tokens.add(new String(bytes, tokenStart, i - tokenStart, StandardCharsets.UTF_8));
+        }
+        return tokens;
+    }
+
+    /**
+     * Finish a token that runs past the tail we read, starting at file position pos.
+     */
+    private static String longToken(FileChannel ch, byte[] bytes, int tokenStart, long pos) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bytes, tokenStart, bytes.length - tokenStart);
+
+        ByteBuffer buf = ByteBuffer.allocate(TAIL_BYTES);
+        try {
+            while (true) {
+                buf.clear();
+                int n = ch.read(buf, pos);
+                if (n <= 0)
+                    break;
+
+                int k = 0;
+                while (k < n && !isWhitespace(buf.get(k)))
+                    k++;
+                out.write(buf.array(), 0, k);
+                if (k < n)
+                    break;
+                pos += n;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+
+    // Unit testing: count the tokens in a file, and time it
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        long[] count = new long[1];
+        forEachToken(Path.of(args[0]), s -> count[0]++);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(count[0] + " tokens in " + seconds + " s");
+    }
+}
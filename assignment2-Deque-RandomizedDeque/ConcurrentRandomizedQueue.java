@@ -0,0 +1,281 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A RandomizedQueue that many threads can share without one global lock.
+ *
+ * Items are spread over SHARDS. Each shard is a small resizing array
+ * (the same layout as RandomizedQueue) with its own lock:
+ *
+ *   enqueue: the calling thread adds to its HOME shard, which is fixed per
+ *            thread, so producers on different threads rarely touch the
+ *            same lock or the same cache lines.
+ *   dequeue: start at a random shard and remove a random item from the
+ *            first non-empty shard found, moving on (STEALING from the
+ *            next shards) when a shard has run dry.
+ *
+ * Random numbers come from ThreadLocalRandom, not StdRandom: StdRandom
+ * shares one java.util.Random, whose seed every thread would update.
+ *
+ * UNIFORMITY
+ *   - Within a shard, every item is equally likely (as in RandomizedQueue).
+ *   - Across shards, each non-empty shard is picked about equally often,
+ *     regardless of how many items it holds. So dequeue() is exactly
+ *     uniform when all non-empty shards hold the same number of items
+ *     (e.g. one producer thread, or producers enqueueing at equal rates),
+ *     and otherwise favours items in smaller shards.
+ *   - Probing also favours the shard right after a run of empty shards.
+ *   Workloads that need exact uniformity should use RandomizedQueue
+ *   behind a lock.
+ *
+ * CONTENTION
+ *   - enqueue contends only with threads sharing its home shard, and with
+ *     consumers currently dequeuing from that shard.
+ *   - dequeue contends with others only when two threads pick the same
+ *     shard; with shards = 2 * cores, that is rare until the queue is
+ *     nearly empty and everyone converges on the last non-empty shards.
+ *   - size() sums a LongAdder, so it is cheap but only a snapshot.
+ *   - Each shard, and each shard's items array, is followed by at least
+ *     128 bytes of PADDING, and the shards are all allocated before any
+ *     of their arrays. So what one shard writes (its lock word, size and
+ *     the end of its array) never shares a cache line with another
+ *     shard's, even with adjacent-line prefetching. Without it, shards
+ *     and arrays allocated back to back would share lines, and producers
+ *     on different home shards would still invalidate each other's
+ *     caches.
+ *
+ * All operations are O(1) amortized when shards are not empty;
+ * a dequeue on a (nearly) empty queue may probe all shards: O(shards).
+ */
+public class ConcurrentRandomizedQueue<Item> {
+
+    /*
+     * A shard's hot data is its object header (the monitor word), items
+     * and size, all in its first 24 bytes or so. The JVM lays out
+     * superclass fields first, so the padding declared in Shard comes
+     * after them: 128 bytes between one shard's hot data and the next
+     * shard's header.
+     */
+    private static class ShardFields {
+        Object[] items;
+        int size;
+    }
+
+    // Unused slots at the end of every items array: 128 bytes or more
+    private static final int ARRAY_PAD = 32;
+
+    /**
+     * One shard: a resizing array guarded by its own monitor.
+     */
+    private static final class Shard extends ShardFields {
+        long q00, q01, q02, q03, q04, q05, q06, q07;
+        long q08, q09, q10, q11, q12, q13, q14, q15;
+
+        // Slots available for items (the rest is padding)
+        int capacity() {
+            return items.length - ARRAY_PAD;
+        }
+
+        void add(Object item) {
+            if (size == capacity())
+                resize(2 * capacity());
+            items[size++] = item;
+        }
+
+        Object removeRandom(ThreadLocalRandom random) {
+            int r = random.nextInt(size);
+            Object item = items[r];
+            items[r] = items[size - 1];
+            items[size - 1] = null;
+            size--;
+
+            if (size > 0 && size == capacity() / 4)
+                resize(capacity() / 2);
+            return item;
+        }
+
+        void resize(int capacity) {
+            Object[] copy = new Object[capacity + ARRAY_PAD];
+            System.arraycopy(items, 0, copy, 0, size);
+            items = copy;
+        }
+    }
+
+    // Hands out home shards round-robin, so threads spread evenly
+    private static final AtomicInteger NEXT_HOME = new AtomicInteger();
+    private static final ThreadLocal<Integer> HOME = ThreadLocal.withInitial(NEXT_HOME::getAndIncrement);
+
+    private final Shard[] shards;
+    private final int mask;                       // shards.length - 1
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Queue with 2 shards per available processor.
+     */
+    public ConcurrentRandomizedQueue() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Queue with at least `shardCount` shards (rounded up to a power of 2).
+     */
+    public ConcurrentRandomizedQueue(int shardCount) {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("Shard count must be > 0");
+
+        int n = Integer.highestOneBit(shardCount);
+        if (n < shardCount)
+            n <<= 1;
+
+        // All shards first, then their arrays, so that no array lands
+        // between two shards
+        shards = new Shard[n];
+        for (int i = 0; i < n; i++)
+            shards[i] = new Shard();
+        for (Shard shard : shards)
+            shard.items = new Object[2 + ARRAY_PAD];
+        mask = n - 1;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+        // O(shards)
+    }
+
+    /**
+     * Number of items. Only a snapshot while other threads are running.
+     */
+    public int size() {
+        // A dequeue may count its decrement before the matching enqueue
+        // counts its increment, so the sum can briefly be negative
+        return (int) Math.max(0, size.sum());
+        // O(shards)
+    }
+
+    /**
+     * Add an item to this thread's home shard.
+     */
+    public void enqueue(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        Shard home = shards[HOME.get() & mask];
+        synchronized (home) {
+            home.add(item);
+        }
+        size.increment();
+        // O(1) amortized
+    }
+
+    /**
+     * Remove and return a random item.
+     *
+     * Throws if every shard was empty when probed.
+     */
+    public Item dequeue() {
+        Item item = poll();
+        if (item == null)
+            throw new NoSuchElementException("Queue is empty");
+        return item;
+    }
+
+    /**
+     * Remove and return a random item, or null if every shard was empty
+     * when probed.
+     */
+    public Item poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int start = random.nextInt(shards.length);
+
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[(start + i) & mask];
+            synchronized (shard) {
+                if (shard.size > 0) {
+                    Item item = (Item) shard.removeRandom(random);
+                    size.decrement();
+                    return item;
+                }
+            }
+        }
+        return null;
+        // O(1) amortized when non-empty, O(shards) worst case
+    }
+
+    /**
+     * Return a random item without removing it (same shard choice as poll()).
+     */
+    public Item sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int start = random.nextInt(shards.length);
+
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[(start + i) & mask];
+            synchronized (shard) {
+                if (shard.size > 0)
+                    return (Item) shard.items[random.nextInt(shard.size)];
+            }
+        }
+        throw new NoSuchElementException("Queue is empty");
+    }
+
+    /**
+     * Throughput test: each thread alternates enqueue and dequeue on a
+     * shared pool, for 1, 2, 4, ... threads up to the core count.
+     * Compares against RandomizedQueue behind one global lock.
+     *
+     * Example:
+     *   java ConcurrentRandomizedQueue 2000000
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ConcurrentRandomizedQueue<Integer> sharded = new ConcurrentRandomizedQueue<>();
+            RandomizedQueue<Integer> locked = new RandomizedQueue<>();
+            for (int i = 0; i < 100000; i++)
+                locked.enqueue(i);
+
+            // Pre-fill from one thread per shard: home shards are handed out
+            // round-robin, so every shard starts with an equal share
+            int perShard = 100000 / sharded.shards.length;
+            run(sharded.shards.length, perShard, () -> sharded.enqueue(0)); // values don't matter
+
+            double shardedRate = run(threads, opsPerThread, () -> {
+                sharded.enqueue(sharded.dequeue());
+            });
+            double lockedRate = run(threads, opsPerThread, () -> {
+                synchronized (locked) {
+                    locked.enqueue(locked.dequeue());
+                }
+            });
+
+            System.out.printf("%2d threads: sharded %7.2f, global lock %7.2f million ops/s%n",
+                              threads, shardedRate / 1e6, lockedRate / 1e6);
+        }
+    }
+
+    // Run `op` opsPerThread times on each of `threads` threads; return total ops/s
+    private static double run(int threads, int opsPerThread, Runnable op)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < opsPerThread; i++)
+                    op.run();
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Each op is one enqueue plus one dequeue
+        return 2.0 * threads * opsPerThread / seconds;
+    }
+}
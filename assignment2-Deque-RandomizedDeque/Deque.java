@@ -141,6 +141,28 @@ public class Deque<Item> implements Iterable<Item> {
         // O(1)
     }
 
+    /**
+     * Return (without removing) the item at the FRONT.
+     */
+    public Item peekFirst() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        return first.item;
+        // O(1)
+    }
+
+    /**
+     * Return (without removing) the item at the BACK.
+     */
+    public Item peekLast() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        return last.item;
+        // O(1)
+    }
+
     /**
      * Iterator lets us loop over items from front to back.
      * Each next() call moves one step forward → O(1) per operation.
@@ -0,0 +1,205 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Rolling min and max over the last `capacity` doubles of a stream.
+ *
+ * Same monotonic-queue algorithm as SlidingWindow, but for primitive
+ * doubles: boxing every sample into a Deque node would cost more than
+ * the comparisons themselves at millions of samples per second.
+ *
+ * Each monotonic queue is a circular array of (sequence, value) pairs.
+ * A queue never holds more entries than the window, so the arrays are
+ * allocated once, in the constructor, and push/evict never allocate.
+ *
+ * push, evict, min and max are O(1) amortized.
+ */
+public class DoubleSlidingWindow {
+
+    private final int capacity;
+    private final int mask;          // ring length - 1 (ring length is a power of 2)
+
+    private final long[] maxSeq;     // max queue: decreasing values
+    private final double[] maxVal;
+    private int maxHead;
+    private int maxCount;
+
+    private final long[] minSeq;     // min queue: increasing values
+    private final double[] minVal;
+    private int minHead;
+    private int minCount;
+
+    private long pushed;             // sequence number of the next sample
+    private long oldest;             // sequence number of the oldest sample in the window
+
+    /**
+     * Window over the last `capacity` samples.
+     */
+    public DoubleSlidingWindow(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Window capacity must be in 1..2^30");
+
+        this.capacity = capacity;
+        int ring = Integer.highestOneBit(capacity);
+        if (ring < capacity)
+            ring <<= 1;
+        this.mask = ring - 1;
+
+        maxSeq = new long[ring];
+        maxVal = new double[ring];
+        minSeq = new long[ring];
+        minVal = new double[ring];
+    }
+
+    public boolean isEmpty() {
+        return pushed == oldest;
+        // O(1)
+    }
+
+    public int size() {
+        return (int) (pushed - oldest);
+        // O(1)
+    }
+
+    /**
+     * Add a sample, evicting the oldest one if the window is full.
+     */
+    public void push(double x) {
+        if (Double.isNaN(x))
+            throw new IllegalArgumentException("Cannot add NaN");
+
+        if (pushed - oldest == capacity)
+            evict();
+
+        long seq = pushed++;
+
+        while (maxCount > 0 && maxVal[(maxHead + maxCount - 1) & mask] <= x)
+            maxCount--;
+        int slot = (maxHead + maxCount++) & mask;
+        maxSeq[slot] = seq;
+        maxVal[slot] = x;
+
+        while (minCount > 0 && minVal[(minHead + minCount - 1) & mask] >= x)
+            minCount--;
+        slot = (minHead + minCount++) & mask;
+        minSeq[slot] = seq;
+        minVal[slot] = x;
+        // O(1) amortized
+    }
+
+    /**
+     * Push every sample in xs, in order.
+     *
+     * Equivalent to calling push(x) for each x, but keeps the queue state
+     * in local variables for the whole batch, so the JIT can keep it in
+     * registers instead of reloading fields on every sample.
+     */
+    public void pushAll(double[] xs) {
+        for (double x : xs) {
+            if (Double.isNaN(x))
+                throw new IllegalArgumentException("Cannot add NaN");
+        }
+
+        long seq = pushed;
+        long old = oldest;
+        int xHead = maxHead, xCount = maxCount;
+        int nHead = minHead, nCount = minCount;
+
+        for (double x : xs) {
+            if (seq - old == capacity) {
+                if (maxSeq[xHead] == old) {
+                    xHead = (xHead + 1) & mask;
+                    xCount--;
+                }
+                if (minSeq[nHead] == old) {
+                    nHead = (nHead + 1) & mask;
+                    nCount--;
+                }
+                old++;
+            }
+
+            while (xCount > 0 && maxVal[(xHead + xCount - 1) & mask] <= x)
+                xCount--;
+            int slot = (xHead + xCount++) & mask;
+            maxSeq[slot] = seq;
+            maxVal[slot] = x;
+
+            while (nCount > 0 && minVal[(nHead + nCount - 1) & mask] >= x)
+                nCount--;
+            slot = (nHead + nCount++) & mask;
+            minSeq[slot] = seq;
+            minVal[slot] = x;
+
+            seq++;
+        }
+
+        pushed = seq;
+        oldest = old;
+        maxHead = xHead;
+        maxCount = xCount;
+        minHead = nHead;
+        minCount = nCount;
+        // O(xs.length) amortized
+    }
+
+    /**
+     * Remove the oldest sample from the window.
+     */
+    public void evict() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        if (maxSeq[maxHead] == oldest) {
+            maxHead = (maxHead + 1) & mask;
+            maxCount--;
+        }
+        if (minSeq[minHead] == oldest) {
+            minHead = (minHead + 1) & mask;
+            minCount--;
+        }
+        oldest++;
+        // O(1)
+    }
+
+    /**
+     * Largest sample in the window.
+     */
+    public double max() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        return maxVal[maxHead];
+        // O(1)
+    }
+
+    /**
+     * Smallest sample in the window.
+     */
+    public double min() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        return minVal[minHead];
+        // O(1)
+    }
+
+    // Unit testing: rolling min/max of a random walk, plus throughput
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        double[] samples = new double[n];
+        double x = 0;
+        for (int i = 0; i < n; i++) {
+            x += Math.random() - 0.5;
+            samples[i] = x;
+        }
+
+        DoubleSlidingWindow w = new DoubleSlidingWindow(window);
+        long start = System.nanoTime();
+        w.pushAll(samples);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("min %.4f, max %.4f over last %d samples%n", w.min(), w.max(), w.size());
+        System.out.printf("%.1f million samples/s%n", n / seconds / 1e6);
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Rolling min and max over the last `capacity` longs of a stream.
+ *
+ * Same monotonic-queue algorithm as SlidingWindow, but for primitive
+ * longs: boxing every sample into a Deque node would cost more than
+ * the comparisons themselves at millions of samples per second.
+ *
+ * Each monotonic queue is a circular array of (sequence, value) pairs.
+ * A queue never holds more entries than the window, so the arrays are
+ * allocated once, in the constructor, and push/evict never allocate.
+ *
+ * push, evict, min and max are O(1) amortized.
+ */
+public class LongSlidingWindow {
+
+    private final int capacity;
+    private final int mask;          // ring length - 1 (ring length is a power of 2)
+
+    private final long[] maxSeq;     // max queue: decreasing values
+    private final long[] maxVal;
+    private int maxHead;
+    private int maxCount;
+
+    private final long[] minSeq;     // min queue: increasing values
+    private final long[] minVal;
+    private int minHead;
+    private int minCount;
+
+    private long pushed;             // sequence number of the next sample
+    private long oldest;             // sequence number of the oldest sample in the window
+
+    /**
+     * Window over the last `capacity` samples.
+     */
+    public LongSlidingWindow(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Window capacity must be in 1..2^30");
+
+        this.capacity = capacity;
+        int ring = Integer.highestOneBit(capacity);
+        if (ring < capacity)
+            ring <<= 1;
+        this.mask = ring - 1;
+
+        maxSeq = new long[ring];
+        maxVal = new long[ring];
+        minSeq = new long[ring];
+        minVal = new long[ring];
+    }
+
+    public boolean isEmpty() {
+        return pushed == oldest;
+        // O(1)
+    }
+
+    public int size() {
+        return (int) (pushed - oldest);
+        // O(1)
+    }
+
+    /**
+     * Add a sample, evicting the oldest one if the window is full.
+     */
+    public void push(long x) {
+        if (pushed - oldest == capacity)
+            evict();
+
+        long seq = pushed++;
+
+        while (maxCount > 0 && maxVal[(maxHead + maxCount - 1) & mask] <= x)
+            maxCount--;
+        int slot = (maxHead + maxCount++) & mask;
+        maxSeq[slot] = seq;
+        maxVal[slot] = x;
+
+        while (minCount > 0 && minVal[(minHead + minCount - 1) & mask] >= x)
+            minCount--;
+        slot = (minHead + minCount++) & mask;
+        minSeq[slot] = seq;
+        minVal[slot] = x;
+        // O(1) amortized
+    }
+
+    /**
+     * Push every sample in xs, in order.
+     *
+     * Equivalent to calling push(x) for each x, but keeps the queue state
+     * in local variables for the whole batch, so the JIT can keep it in
+     * registers instead of reloading fields on every sample.
+     */
+    public void pushAll(long[] xs) {
+        long seq = pushed;
+        long old = oldest;
+        int xHead = maxHead, xCount = maxCount;
+        int nHead = minHead, nCount = minCount;
+
+        for (long x : xs) {
+            if (seq - old == capacity) {
+                if (maxSeq[xHead] == old) {
+                    xHead = (xHead + 1) & mask;
+                    xCount--;
+                }
+                if (minSeq[nHead] == old) {
+                    nHead = (nHead + 1) & mask;
+                    nCount--;
+                }
+                old++;
+            }
+
+            while (xCount > 0 && maxVal[(xHead + xCount - 1) & mask] <= x)
+                xCount--;
+            int slot = (xHead + xCount++) & mask;
+            maxSeq[slot] = seq;
+            maxVal[slot] = x;
+
+            while (nCount > 0 && minVal[(nHead + nCount - 1) & mask] >= x)
+                nCount--;
+            slot = (nHead + nCount++) & mask;
+            minSeq[slot] = seq;
+            minVal[slot] = x;
+
+            seq++;
+        }
+
+        pushed = seq;
+        oldest = old;
+        maxHead = xHead;
+        maxCount = xCount;
+        minHead = nHead;
+        minCount = nCount;
+        // O(xs.length) amortized
+    }
+
+    /**
+     * Remove the oldest sample from the window.
+     */
+    public void evict() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        if (maxSeq[maxHead] == oldest) {
+            maxHead = (maxHead + 1) & mask;
+            maxCount--;
+        }
+        if (minSeq[minHead] == oldest) {
+            minHead = (minHead + 1) & mask;
+            minCount--;
+        }
+        oldest++;
+        // O(1)
+    }
+
+    /**
+     * Largest sample in the window.
+     */
+    public long max() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        return maxVal[maxHead];
+        // O(1)
+    }
+
+    /**
+     * Smallest sample in the window.
+     */
+    public long min() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        return minVal[minHead];
+        // O(1)
+    }
+
+    // Unit testing: rolling min/max of random latencies, plus throughput
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        long[] samples = new long[n];
+        for (int i = 0; i < n; i++)
+            samples[i] = (long) (Math.random() * 1000000);
+
+        LongSlidingWindow w = new LongSlidingWindow(window);
+        long start = System.nanoTime();
+        w.pushAll(samples);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println("min " + w.min() + ", max " + w.max() + " over last " + w.size() + " samples");
+        System.out.printf("%.1f million samples/s%n", n / seconds / 1e6);
+    }
+}
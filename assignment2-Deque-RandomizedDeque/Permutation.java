@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 import edu.princeton.cs.algs4.StdIn;
 
 /**
@@ -7,23 +10,68 @@ import edu.princeton.cs.algs4.StdIn;
  *   - uniform randomness
  *   - no duplicates
  *   - O(n) total running time
+ *
+ * With "--stream", only k strings are ever kept (see ReservoirSampler),
+ * so memory is O(k) instead of O(n).
+ *
+ * With a file name, the file is read by ChunkedTokenizer (read in chunks,
+ * tokenized in parallel) instead of StdIn, which is much faster on
+ * large files.
+ *
+ * Examples:
+ *   java Permutation 3 < data/names.txt
+ *   java Permutation 3 --stream data/names.txt
  */
 public class Permutation {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         int k = Integer.parseInt(args[0]);
+        boolean stream = false;
+        Path file = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--stream")) {
+                stream = true;
+            } else {
+                file = Path.of(args[i]);
+            }
+        }
+
+        if (stream) {
+            ReservoirSampler<String> rs = new ReservoirSampler<>(k);
+
+            // One pass; all but k strings are dropped as soon as they are read
+            readAll(file, rs::offer);
+
+            // The sample iterates in random order
+            for (String s : rs) {
+                System.out.println(s);
+            }
+            return;
+        }
 
         RandomizedQueue<String> rq = new RandomizedQueue<>();
 
         // Read all input strings
-        while (!StdIn.isEmpty()) {
-            String s = StdIn.readString();
-            rq.enqueue(s);
-        }
+        readAll(file, rq::enqueue);
 
         // Print exactly k random items
         for (int i = 0; i < k; i++) {
             System.out.println(rq.dequeue());
         }
     }
+
+    /**
+     * Pass every input string to sink: from the file if there is one,
+     * otherwise from standard input.
+     */
+    private static void readAll(Path file, Consumer<String> sink) throws IOException {
+        if (file != null) {
+            ChunkedTokenizer.forEachToken(file, sink);
+            return;
+        }
+
+        while (!StdIn.isEmpty()) {
+            sink.accept(StdIn.readString());
+        }
+    }
 }
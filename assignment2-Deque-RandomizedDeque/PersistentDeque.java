@@ -0,0 +1,419 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * An IMMUTABLE deque: every "change" returns a new version, and the old
+ * version stays valid and unchanged.
+ *
+ * Taking a snapshot is free (just keep the reference), and any thread can
+ * read or iterate any version: the only thing that ever changes after
+ * construction is a LAZY middle tree being built the first time it is
+ * needed (see below), and each one is built at most once, under its own
+ * lock.
+ *
+ * Copying a doubly linked Deque would cost O(n) per snapshot. Instead we
+ * use a 2-3 FINGER TREE (Hinze and Paterson), which shares almost all of
+ * its structure between versions:
+ *
+ *   Deep( prefix: 1-4 items, middle: finger tree of 3-item nodes, suffix: 1-4 items )
+ *
+ * Both ends are right at the top, so most operations only rebuild the
+ * small prefix or suffix array. When a prefix overflows (5 items), three
+ * of them are packed into a node and pushed into the middle tree; when it
+ * runs empty, a node is pulled back out of the middle and unpacked.
+ * Each level down holds items 3 times bigger, so the depth is O(log n).
+ *
+ * The middle tree is a SUSPENSION: pushing a node into it (or pulling one
+ * out) is recorded, and only done when somebody looks at the middle, at
+ * most once, with the result kept. Without this, reusing an old version
+ * (undo, branching) would redo the same O(log n) cascade on every call.
+ * Before suspending a new push or pull, the current middle is forced, so
+ * suspensions never pile up in long chains (as in Haskell's Data.Sequence).
+ * This is the Hinze-Paterson finger tree, whose amortized bounds hold
+ * even when any version is reused any number of times.
+ *
+ * Running time (any versions, in any order):
+ *   addFirst/addLast/removeFirst/removeLast: O(1) amortized, O(log n) worst case
+ *   peekFirst/peekLast/size: O(1)
+ */
+public final class PersistentDeque<Item> implements Iterable<Item> {
+
+    // ----------------- Finger tree -----------------
+    //
+    // Trees are untyped: at depth 0 the elements are Items, at depth d > 0
+    // they are 3-element Object[] nodes of depth d-1 elements. A digit
+    // (prefix/suffix) is an Object[] of 1 to 4 elements. Arrays are never
+    // modified once a tree points to them.
+
+    private abstract static class Tree { }
+
+    private static final class Empty extends Tree { }
+
+    private static final class Single extends Tree {
+        final Object element;
+
+        Single(Object element) {
+            this.element = element;
+        }
+    }
+
+    private static final class Deep extends Tree {
+        final Object[] prefix;
+        final Lazy middle;
+        final Object[] suffix;
+
+        Deep(Object[] prefix, Lazy middle, Object[] suffix) {
+            this.prefix = prefix;
+            this.middle = middle;
+            this.suffix = suffix;
+        }
+    }
+
+    /**
+     * A tree computed on first use, then remembered.
+     */
+    private static final class Lazy {
+        private Supplier<Tree> thunk;   // null once forced
+        private volatile Tree value;
+
+        Lazy(Tree value) {
+            this.value = value;
+        }
+
+        Lazy(Supplier<Tree> thunk) {
+            this.thunk = thunk;
+        }
+
+        Tree force() {
+            Tree v = value;
+            if (v == null) {
+                synchronized (this) {
+                    v = value;
+                    if (v == null) {
+                        v = thunk.get();
+                        value = v;
+                        thunk = null; // let the old trees it captured go
+                    }
+                }
+            }
+            return v;
+        }
+    }
+
+    private static final Tree EMPTY_TREE = new Empty();
+    private static final Lazy EMPTY_MIDDLE = new Lazy(EMPTY_TREE);
+    private static final PersistentDeque<?> EMPTY = new PersistentDeque<>(EMPTY_TREE, 0);
+
+    private final Tree tree;
+    private final int size;
+
+    private PersistentDeque(Tree tree, int size) {
+        this.tree = tree;
+        this.size = size;
+    }
+
+    /**
+     * The empty deque. There is only one; every deque starts from it.
+     */
+    public static <Item> PersistentDeque<Item> empty() {
+        return (PersistentDeque<Item>) EMPTY;
+        // O(1)
+    }
+
+    /**
+     * A deque holding the items, in iteration order.
+     */
+    public static <Item> PersistentDeque<Item> of(Iterable<Item> items) {
+        PersistentDeque<Item> d = empty();
+        for (Item item : items)
+            d = d.addLast(item);
+        return d;
+        // O(n)
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+        // O(1)
+    }
+
+    public int size() {
+        return size;
+        // O(1)
+    }
+
+    /**
+     * New version with item added at the FRONT.
+     */
+    public PersistentDeque<Item> addFirst(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        return new PersistentDeque<>(pushFront(tree, item), size + 1);
+    }
+
+    /**
+     * New version with item added at the BACK.
+     */
+    public PersistentDeque<Item> addLast(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        return new PersistentDeque<>(pushBack(tree, item), size + 1);
+    }
+
+    /**
+     * The item at the FRONT.
+     */
+    public Item peekFirst() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        return (Item) first(tree);
+        // O(1)
+    }
+
+    /**
+     * The item at the BACK.
+     */
+    public Item peekLast() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        return (Item) last(tree);
+        // O(1)
+    }
+
+    /**
+     * New version without the FRONT item. (Read it first with peekFirst().)
+     */
+    public PersistentDeque<Item> removeFirst() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        return new PersistentDeque<>(popFront(tree), size - 1);
+    }
+
+    /**
+     * New version without the BACK item. (Read it first with peekLast().)
+     */
+    public PersistentDeque<Item> removeLast() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        return new PersistentDeque<>(popBack(tree), size - 1);
+    }
+
+    // ----------------- Tree operations -----------------
+
+    private static Tree pushFront(Tree t, Object a) {
+        if (t instanceof Empty)
+            return new Single(a);
+
+        if (t instanceof Single)
+            return new Deep(new Object[] { a }, EMPTY_MIDDLE, new Object[] { ((Single) t).element });
+
+        Deep d = (Deep) t;
+        Object[] p = d.prefix;
+        if (p.length < 4)
+            return new Deep(prepend(a, p), d.middle, d.suffix);
+
+        // Prefix is full: keep 2, push the other 3 down as one node, later
+        Object[] node = { p[1], p[2], p[3] };
+        Tree m = d.middle.force();
+        return new Deep(new Object[] { a, p[0] }, new Lazy(() -> pushFront(m, node)), d.suffix);
+    }
+
+    private static Tree pushBack(Tree t, Object a) {
+        if (t instanceof Empty)
+            return new Single(a);
+
+        if (t instanceof Single)
+            return new Deep(new Object[] { ((Single) t).element }, EMPTY_MIDDLE, new Object[] { a });
+
+        Deep d = (Deep) t;
+        Object[] s = d.suffix;
+        if (s.length < 4)
+            return new Deep(d.prefix, d.middle, append(s, a));
+
+        Object[] node = { s[0], s[1], s[2] };
+        Tree m = d.middle.force();
+        return new Deep(d.prefix, new Lazy(() -> pushBack(m, node)), new Object[] { s[3], a });
+    }
+
+    private static Tree popFront(Tree t) {
+        if (t instanceof Single)
+            return EMPTY_TREE;
+
+        Deep d = (Deep) t;
+        if (d.prefix.length > 1)
+            return new Deep(slice(d.prefix, 1, d.prefix.length), d.middle, d.suffix);
+
+        Tree m = d.middle.force();
+        if (m instanceof Empty)
+            return fromDigit(d.suffix);
+
+        // Prefix runs empty: the first node of the middle becomes the new prefix
+        Object[] node = (Object[]) first(m);
+        return new Deep(node, new Lazy(() -> popFront(m)), d.suffix);
+    }
+
+    private static Tree popBack(Tree t) {
+        if (t instanceof Single)
+            return EMPTY_TREE;
+
+        Deep d = (Deep) t;
+        if (d.suffix.length > 1)
+            return new Deep(d.prefix, d.middle, slice(d.suffix, 0, d.suffix.length - 1));
+
+        Tree m = d.middle.force();
+        if (m instanceof Empty)
+            return fromDigit(d.prefix);
+
+        Object[] node = (Object[]) last(m);
+        return new Deep(d.prefix, new Lazy(() -> popBack(m)), node);
+    }
+
+    private static Object first(Tree t) {
+        if (t instanceof Single)
+            return ((Single) t).element;
+        return ((Deep) t).prefix[0];
+    }
+
+    private static Object last(Tree t) {
+        if (t instanceof Single)
+            return ((Single) t).element;
+        Object[] s = ((Deep) t).suffix;
+        return s[s.length - 1];
+    }
+
+    // A tree holding the 1-4 elements of a digit
+    private static Tree fromDigit(Object[] digit) {
+        if (digit.length == 1)
+            return new Single(digit[0]);
+        return new Deep(slice(digit, 0, 1), EMPTY_MIDDLE, slice(digit, 1, digit.length));
+    }
+
+    private static Object[] prepend(Object a, Object[] digit) {
+        Object[] copy = new Object[digit.length + 1];
+        copy[0] = a;
+        System.arraycopy(digit, 0, copy, 1, digit.length);
+        return copy;
+    }
+
+    private static Object[] append(Object[] digit, Object a) {
+        Object[] copy = new Object[digit.length + 1];
+        System.arraycopy(digit, 0, copy, 0, digit.length);
+        copy[digit.length] = a;
+        return copy;
+    }
+
+    private static Object[] slice(Object[] digit, int from, int to) {
+        Object[] copy = new Object[to - from];
+        System.arraycopy(digit, from, copy, 0, to - from);
+        return copy;
+    }
+
+    /**
+     * Iterator goes front to back over THIS version, whatever happens to
+     * other versions meanwhile.
+     *
+     * It walks the tree with an explicit stack (a Deque of pending
+     * elements and their depths), unpacking nodes as it reaches them.
+     * Each next() is O(1) amortized; no new versions are built.
+     */
+    public Iterator<Item> iterator() {
+        return new TreeIterator();
+    }
+
+    private class TreeIterator implements Iterator<Item> {
+
+        // Something still to visit: a tree, or an element at some depth
+        private class Pending {
+            final Object element;
+            final Tree tree;
+            final int depth;
+
+            Pending(Object element, Tree tree, int depth) {
+                this.element = element;
+                this.tree = tree;
+                this.depth = depth;
+            }
+        }
+
+        private final Deque<Pending> stack = new Deque<>();
+
+        TreeIterator() {
+            stack.addFirst(new Pending(null, tree, 0));
+        }
+
+        public boolean hasNext() {
+            expandToItem();
+            return !stack.isEmpty();
+        }
+
+        public Item next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return (Item) stack.removeFirst().element;
+            // O(1) amortized
+        }
+
+        /**
+         * Unpack the top of the stack until it is an item (depth 0).
+         * Children are pushed in reverse, so the leftmost ends up on top.
+         */
+        private void expandToItem() {
+            while (!stack.isEmpty()) {
+                Pending top = stack.peekFirst();
+                if (top.tree == null && top.depth == 0)
+                    return;
+                stack.removeFirst();
+
+                if (top.tree == null) {
+                    Object[] node = (Object[]) top.element;
+                    pushAll(node, top.depth - 1);
+                } else if (top.tree instanceof Single) {
+                    stack.addFirst(new Pending(((Single) top.tree).element, null, top.depth));
+                } else if (top.tree instanceof Deep) {
+                    Deep d = (Deep) top.tree;
+                    pushAll(d.suffix, top.depth);
+                    stack.addFirst(new Pending(null, d.middle.force(), top.depth + 1));
+                    pushAll(d.prefix, top.depth);
+                }
+            }
+        }
+
+        private void pushAll(Object[] elements, int depth) {
+            for (int i = elements.length - 1; i >= 0; i--)
+                stack.addFirst(new Pending(elements[i], null, depth));
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Unit testing: undo history where every version stays usable
+    public static void main(String[] args) {
+        PersistentDeque<Integer> v0 = PersistentDeque.empty();
+        PersistentDeque<Integer> v1 = v0.addLast(1).addLast(2).addLast(3);
+        PersistentDeque<Integer> v2 = v1.addFirst(0);
+        PersistentDeque<Integer> v3 = v2.removeLast().removeLast();
+
+        for (PersistentDeque<Integer> v : List.of(v0, v1, v2, v3)) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int x : v)
+                sb.append(' ').append(x);
+            System.out.println(sb.append(" ] size ").append(v.size()));
+        }
+
+        PersistentDeque<Integer> big = PersistentDeque.empty();
+        for (int i = 0; i < 1000000; i++)
+            big = big.addLast(i);
+        System.out.println("Big: first " + big.peekFirst() + ", last " + big.peekLast()
+                                   + ", size " + big.size());
+    }
+}
@@ -1,5 +1,7 @@
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
 import edu.princeton.cs.algs4.StdRandom;
 
 /**
@@ -92,6 +94,222 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         // O(1)
     }
 
+    /**
+     * Fill dst[0..k-1] with k random items, without removing them.
+     *
+     * withReplacement = true:  the same item may be picked more than once
+     * withReplacement = false: k distinct items (needs k <= size)
+     *
+     * Cheaper than k calls to sample(): the checks happen once, and the
+     * random numbers come from a local SplittableRandom, seeded by ONE
+     * StdRandom draw. StdRandom shares a single java.util.Random, which
+     * updates an atomic seed on every call; the local generator does not.
+     * (StdRandom.setSeed still makes the batches reproducible.)
+     *
+     * Without replacement, the picks are a partial Fisher-Yates shuffle
+     * of the INDICES, kept in a small IndexMap (an untouched position p
+     * still holds p). The items array is only read, so live iterators
+     * and other readers are not disturbed.
+     *
+     * O(k)
+     */
+    public void sample(int k, boolean withReplacement, Item[] dst) {
+        checkBatch(k, dst);
+        if (k == 0)
+            return;
+        if (isEmpty())
+            throw new NoSuchElementException("Queue is empty");
+
+        SplittableRandom random = new SplittableRandom(StdRandom.uniform(Long.MAX_VALUE));
+
+        // Pick all the indices first, then fetch the items in one tight
+        // loop, so that the cache misses on a big items array overlap
+        int[] picks = new int[k];
+
+        if (!withReplacement) {
+            if (k > size)
+                throw new NoSuchElementException("Queue has fewer than k items");
+
+            // Position i is never read again after step i, so it is not removed
+            IndexMap moved = new IndexMap(k);
+            for (int i = 0; i < k; i++)
+                picks[i] = moved.replace(i + random.nextInt(size - i), moved.get(i));
+        } else {
+            for (int i = 0; i < k; i++)
+                picks[i] = random.nextInt(size);
+        }
+
+        for (int i = 0; i < k; i++)
+            dst[i] = items[picks[i]];
+    }
+
+    /**
+     * Remove k random items and put them in dst[0..k-1].
+     *
+     * The picks are moved to the end of the array (a partial Fisher-Yates
+     * shuffle) and cut off from there. The array is shrunk at most once,
+     * at the end, instead of possibly several times during k separate
+     * dequeue() calls.
+     *
+     * O(k) amortized
+     */
+    public void dequeue(int k, Item[] dst) {
+        checkBatch(k, dst);
+
+        moveRandomToEnd(k);
+        for (int i = 0; i < k; i++) {
+            dst[i] = items[size - 1 - i];
+            items[size - 1 - i] = null;
+        }
+        size -= k;
+
+        // Same rule as dequeue(): at most 1/4 full means halve, possibly several times
+        int capacity = items.length;
+        while (size > 0 && size <= capacity / 4)
+            capacity /= 2;
+        if (capacity != items.length)
+            resize(capacity);
+    }
+
+    private void checkBatch(int k, Item[] dst) {
+        if (k < 0)
+            throw new IllegalArgumentException("k must be >= 0");
+        if (dst == null || dst.length < k)
+            throw new IllegalArgumentException("Destination array must hold k items");
+    }
+
+    /**
+     * Partial Fisher-Yates shuffle: afterwards items[size-k..size-1]
+     * are k distinct items chosen uniformly at random.
+     */
+    private void moveRandomToEnd(int k) {
+        if (k > size)
+            throw new NoSuchElementException("Queue has fewer than k items");
+
+        for (int i = 0; i < k; i++)
+            swap(StdRandom.uniform(size - i), size - 1 - i);
+        // O(k)
+    }
+
+    private void swap(int i, int j) {
+        Item t = items[i];
+        items[i] = items[j];
+        items[j] = t;
+    }
+
+    /**
+     * Map from positions to indices for the partial shuffles, without
+     * boxing: open addressing with linear probing over two int arrays.
+     *
+     * A key with no entry maps to itself, so putting p -> p just removes
+     * p; the map only ever holds positions that really moved.
+     */
+    private static final class IndexMap {
+        private int[] keys;    // key + 1, or 0 for an empty slot
+        private int[] values;
+        private int mask;      // keys.length - 1
+        private int count;
+
+        // Room for `expected` entries before the first resize
+        IndexMap(int expected) {
+            int capacity = Integer.highestOneBit(4 * Math.max(expected, 8) - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int get(int key) {
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key + 1)
+                    return values[slot];
+            }
+            return key;
+        }
+
+        // Map key to value; return what key mapped to before
+        int replace(int key, int value) {
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key + 1) {
+                    int old = values[slot];
+                    values[slot] = value;
+                    return old;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key + 1;
+            values[slot] = value;
+            if (++count > keys.length / 2)
+                resize(2 * keys.length);
+            return key;
+        }
+
+        void put(int key, int value) {
+            if (key == value) {
+                remove(key);
+                return;
+            }
+
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0 && keys[slot] != key + 1)
+                slot = (slot + 1) & mask;
+            if (keys[slot] == 0) {
+                keys[slot] = key + 1;
+                if (++count > keys.length / 2) {
+                    values[slot] = value;
+                    resize(2 * keys.length);
+                    return;
+                }
+            }
+            values[slot] = value;
+        }
+
+        void remove(int key) {
+            int hole = hash(key) & mask;
+            while (keys[hole] != key + 1) {
+                if (keys[hole] == 0)
+                    return;
+                hole = (hole + 1) & mask;
+            }
+            keys[hole] = 0;
+            count--;
+
+            // Shift later entries of the probe run back into the hole,
+            // unless that would put them before their home slot
+            for (int slot = (hole + 1) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                int home = hash(keys[slot] - 1) & mask;
+                if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    keys[slot] = 0;
+                    hole = slot;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0)
+                    continue;
+                int slot = hash(oldKeys[i] - 1) & mask;
+                while (keys[slot] != 0)
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
     /**
      * Resize array to new capacity.
      * This takes O(n) time, but happens rarely.
@@ -107,33 +325,39 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     /**
      * Iterator returns items in RANDOM ORDER.
      *
-     * We:
-     *   - copy indices into an array
-     *   - shuffle them
+     * The order is a Fisher-Yates shuffle of the indices 0..n-1, done
+     * LAZILY: step i swaps position i with a random position j >= i and
+     * returns what lands at i. Instead of an int[n] holding the shuffled
+     * indices, we only remember the positions a swap has moved, in an
+     * IndexMap (an untouched position p still holds p). Position i is
+     * dropped from the map once returned.
+     *
+     * So creating an iterator is O(1), and each next() is O(1) amortized
+     * time and adds at most one map entry: an iterator that has returned
+     * m items holds at most m entries. Callers that take only the first
+     * few items of a huge queue never pay O(n), and many iterators over
+     * the same queue each pay only for what they take. A full pass peaks
+     * at about n/4 entries halfway through: 4n to 8n bytes, about the
+     * size of the items array itself.
      *
-     * Construction = O(n)
-     * Each next() = O(1)
+     * Random numbers come from a SplittableRandom seeded by one StdRandom
+     * draw, as in sample(k, withReplacement, dst).
+     *
+     * Construction = O(1)
+     * Each next()  = O(1) amortized
      */
     public Iterator<Item> iterator() {
         return new RandomIterator();
     }
 
     private class RandomIterator implements Iterator<Item> {
-        private int[] order;
+        private final int n = size;
+        private final SplittableRandom random = new SplittableRandom(StdRandom.uniform(Long.MAX_VALUE));
+        private final IndexMap moved = new IndexMap(8); // position -> index, only for moved positions
         private int current;
 
-        public RandomIterator() {
-            order = new int[size];
-            for (int i = 0; i < size; i++)
-                order[i] = i;
-
-            StdRandom.shuffle(order);
-            current = 0;
-            // O(n)
-        }
-
         public boolean hasNext() {
-            return current < order.length;
+            return current < n;
             // O(1)
         }
 
@@ -141,8 +365,13 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             if (!hasNext())
                 throw new NoSuchElementException();
 
-            return items[order[current++]];
-            // O(1)
+            int j = current + random.nextInt(n - current);
+            int index = moved.replace(j, moved.get(current));
+            moved.remove(current); // position current is never read again
+
+            current++;
+            return items[index];
+            // O(1) amortized
         }
 
         public void remove() {
@@ -161,5 +390,13 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             System.out.println(x);
 
         System.out.println("Dequeued: " + rq.dequeue());
+
+        for (int i = 0; i < 10; i++)
+            rq.enqueue(i);
+        Integer[] batch = new Integer[4];
+        rq.sample(4, true, batch);
+        System.out.println("Sampled with replacement: " + Arrays.toString(batch));
+        rq.dequeue(4, batch);
+        System.out.println("Dequeued 4: " + Arrays.toString(batch) + ", " + rq.size() + " left");
     }
 }
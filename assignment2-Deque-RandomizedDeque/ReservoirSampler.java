@@ -0,0 +1,128 @@
+import java.util.Iterator;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Keeps a uniformly random sample of k items from a stream of unknown length,
+ * using only O(k) memory and a single pass.
+ *
+ * Classic reservoir sampling (Algorithm R) draws one random number per item.
+ * Algorithm L (Li, 1994) instead computes HOW MANY items to skip before the
+ * next one that enters the reservoir:
+ *
+ *   W    = U^(1/k)                          (U uniform in (0, 1])
+ *   skip = floor(log(U') / log(1 - W))
+ *
+ * After each replacement, W shrinks: W = W * U''^(1/k).
+ *
+ * Skipped items cost only a counter decrement, so the expected number of
+ * random draws is O(k (1 + log(n / k))) instead of O(n).
+ *
+ * The reservoir is a RandomizedQueue:
+ *   - "replace a uniformly random slot" is just dequeue() + enqueue()
+ *   - iterating it returns the sample in uniformly random order
+ */
+public class ReservoirSampler<Item> implements Iterable<Item> {
+
+    private final int k;
+    private final RandomizedQueue<Item> reservoir = new RandomizedQueue<>();
+
+    private long seen;      // number of items offered so far
+    private long nextPick;  // 1-based index of the next item to keep
+    private double w;       // Algorithm L's running W
+
+    /**
+     * Sampler that keeps k items.
+     */
+    public ReservoirSampler(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Sample size k must be >= 0");
+
+        this.k = k;
+        // O(1)
+    }
+
+    /**
+     * Offer the next item of the stream.
+     *
+     * The first k items always go in. After that, only the items at the
+     * precomputed skip positions do, each replacing a random current one.
+     */
+    public void offer(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        seen++;
+
+        if (seen <= k) {
+            reservoir.enqueue(item);
+            if (seen == k) {
+                w = Math.exp(Math.log(random()) / k);
+                nextPick = seen + skip() + 1;
+            }
+            return;
+        }
+
+        if (seen == nextPick) {
+            reservoir.dequeue();
+            reservoir.enqueue(item);
+            w *= Math.exp(Math.log(random()) / k);
+            nextPick = seen + skip() + 1;
+        }
+        // O(1)
+    }
+
+    // Number of items offered so far
+    public long seen() {
+        return seen;
+        // O(1)
+    }
+
+    // Number of items in the sample: min(k, seen)
+    public int size() {
+        return reservoir.size();
+        // O(1)
+    }
+
+    /**
+     * How many items to pass over before the next replacement.
+     *
+     * Saturates when W is so small that the gap overflows a long:
+     * the next pick is then effectively never.
+     */
+    private long skip() {
+        double gap = Math.floor(Math.log(random()) / Math.log(1 - w));
+        if (!(gap < Long.MAX_VALUE - seen - 1))
+            return Long.MAX_VALUE - seen - 1;
+        return (long) gap;
+    }
+
+    // Uniform in (0, 1], so that log() never sees 0
+    private static double random() {
+        return 1.0 - StdRandom.uniform();
+    }
+
+    /**
+     * Iterates the sample in uniformly random order.
+     */
+    public Iterator<Item> iterator() {
+        return reservoir.iterator();
+    }
+
+    // Unit testing: sample 3 of 0..99 many times and print how often each value shows up
+    public static void main(String[] args) {
+        int trials = 100000;
+        int[] counts = new int[100];
+
+        for (int t = 0; t < trials; t++) {
+            ReservoirSampler<Integer> rs = new ReservoirSampler<>(3);
+            for (int i = 0; i < 100; i++)
+                rs.offer(i);
+            for (int x : rs)
+                counts[x]++;
+        }
+
+        // Each count should be close to trials * 3 / 100 = 3000
+        for (int i = 0; i < 100; i += 10)
+            System.out.println(i + ": " + counts[i]);
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * Rolling min and max over the last `capacity` items of a stream.
+ *
+ * The naive approach rescans the whole window on every query: O(window).
+ * Instead we keep two MONOTONIC QUEUES, each a Deque of (sequence, item):
+ *
+ *   maxQueue: items in decreasing order, front = current max
+ *   minQueue: items in increasing order, front = current min
+ *
+ * push(x) first pops from the BACK every entry that x beats: those items
+ * are older than x and no better, so they can never be the answer again.
+ * evict() pops from the FRONT if that entry is the oldest item in the window.
+ *
+ * Each item is added and removed at most once per queue, so push, evict
+ * and min/max are all O(1) amortized.
+ *
+ * For primitive streams, see DoubleSlidingWindow and LongSlidingWindow,
+ * which run the same algorithm without boxing.
+ */
+public class SlidingWindow<Item> {
+
+    /**
+     * One queue entry: the item and its position in the stream.
+     */
+    private class Entry {
+        final long seq;
+        final Item item;
+
+        Entry(long seq, Item item) {
+            this.seq = seq;
+            this.item = item;
+        }
+    }
+
+    private final int capacity;
+    private final Comparator<? super Item> order;
+    private final Deque<Entry> maxQueue = new Deque<>();
+    private final Deque<Entry> minQueue = new Deque<>();
+
+    private long pushed;   // sequence number of the next item
+    private long oldest;   // sequence number of the oldest item in the window
+
+    /**
+     * Window over the last `capacity` items, ranked by `order`.
+     */
+    public SlidingWindow(int capacity, Comparator<? super Item> order) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Window capacity must be > 0");
+        if (order == null)
+            throw new IllegalArgumentException("Comparator is required");
+
+        this.capacity = capacity;
+        this.order = order;
+        // O(1)
+    }
+
+    public boolean isEmpty() {
+        return pushed == oldest;
+        // O(1)
+    }
+
+    // Number of items currently in the window
+    public int size() {
+        return (int) (pushed - oldest);
+        // O(1)
+    }
+
+    /**
+     * Add an item to the window, evicting the oldest one if it is full.
+     */
+    public void push(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        if (size() == capacity)
+            evict();
+
+        Entry e = new Entry(pushed++, item);
+
+        while (!maxQueue.isEmpty() && order.compare(maxQueue.peekLast().item, item) <= 0)
+            maxQueue.removeLast();
+        maxQueue.addLast(e);
+
+        while (!minQueue.isEmpty() && order.compare(minQueue.peekLast().item, item) >= 0)
+            minQueue.removeLast();
+        minQueue.addLast(e);
+        // O(1) amortized
+    }
+
+    /**
+     * Remove the oldest item from the window.
+     *
+     * Useful for time-based windows, where the caller decides when an
+     * item has expired.
+     */
+    public void evict() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        if (maxQueue.peekFirst().seq == oldest)
+            maxQueue.removeFirst();
+        if (minQueue.peekFirst().seq == oldest)
+            minQueue.removeFirst();
+        oldest++;
+        // O(1)
+    }
+
+    /**
+     * Largest item in the window.
+     */
+    public Item max() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        return maxQueue.peekFirst().item;
+        // O(1)
+    }
+
+    /**
+     * Smallest item in the window.
+     */
+    public Item min() {
+        if (isEmpty())
+            throw new NoSuchElementException("Window is empty");
+
+        return minQueue.peekFirst().item;
+        // O(1)
+    }
+
+    // Unit testing
+    public static void main(String[] args) {
+        SlidingWindow<Integer> w = new SlidingWindow<>(3, Comparator.naturalOrder());
+        int[] samples = { 4, 2, 12, 3, 8, 1, 7 };
+
+        for (int x : samples) {
+            w.push(x);
+            System.out.println("push " + x + " -> min " + w.min() + ", max " + w.max());
+        }
+    }
+}
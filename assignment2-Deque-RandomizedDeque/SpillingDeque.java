@@ -0,0 +1,581 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A Deque whose memory use stays BOUNDED, no matter how many items it holds.
+ *
+ * Items live in fixed-size SEGMENTS (small arrays), and the segments form
+ * a doubly linked list, just like the nodes of Deque:
+ *
+ *   [head segment] <-> [middle] <-> [middle] <-> ... <-> [tail segment]
+ *
+ * All four operations only ever touch the head or the tail segment, so
+ * those two always stay on the heap. The middle segments are not needed
+ * until one of the ends reaches them, so once more than maxResident
+ * segments are in memory, a segment that gets TWO segments away from an
+ * end is SPILLED:
+ *   - its items are written to the SPILL FILE using a Serializer
+ *   - its array is dropped, so the garbage collector can reclaim it
+ *
+ * When an end segment empties and the next segment was spilled, it is
+ * read back (O(segmentSize)) and becomes the new end segment.
+ *
+ * Why two away, and not as soon as a segment stops being an end? With
+ * the deque sitting right at a segment boundary, alternating add and
+ * remove would then spill the neighbour and read it straight back on
+ * every call. Leaving the neighbour alone means that between spilling a
+ * segment and reloading it (or the other way round), a whole segment's
+ * worth of items must be added or removed at that end. So each
+ * O(segmentSize) spill or reload is paid for by segmentSize operations,
+ * and addFirst/addLast/removeFirst/removeLast are O(1) amortized even
+ * for adversarial sequences.
+ *
+ * The ends and their neighbours (up to 4 segments) are never spilled, so
+ * maxResident must be at least 4. At most maxResident + 1 segments are on
+ * the heap (one over when a new end segment finds the segment two away
+ * already spilled).
+ *
+ * The array of an emptied end segment is kept as a spare for the next
+ * new segment, so crossing a boundary back and forth does not allocate.
+ *
+ * There is one spill file per deque, divided into SLOTS (whole blocks of
+ * 4 KiB). A spilled segment takes the smallest free slot that fits it,
+ * or a new one at the end of the file; when it is read back, its slot is
+ * freed for the next spill, merged with any free slots right before or
+ * after it; a free slot that reaches the end of the file is cut off
+ * (truncate). So the file never holds more than the spilled bytes plus
+ * the free holes between them, and shrinks again as the deque drains.
+ * Reads and writes are plain positional FileChannel calls, so nothing
+ * stays mapped.
+ *
+ * Call close() when done, to delete the spill file.
+ */
+public class SpillingDeque<Item> implements Iterable<Item>, AutoCloseable {
+
+    /**
+     * Turns items into bytes (for spilling) and back (for reloading).
+     */
+    public interface Serializer<Item> {
+        byte[] toBytes(Item item);
+
+        Item fromBytes(byte[] bytes);
+    }
+
+    /**
+     * Serializer for Strings, encoded as UTF-8.
+     */
+    public static final Serializer<String> STRINGS = new Serializer<String>() {
+        public byte[] toBytes(String item) {
+            return item.getBytes(StandardCharsets.UTF_8);
+        }
+
+        public String fromBytes(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private static final int DEFAULT_SEGMENT_SIZE = 4096;
+    private static final int DEFAULT_MAX_RESIDENT = 16;
+    private static final int SLOT_ALIGN = 4096;   // slot sizes are multiples of this
+
+    /**
+     * Segment = a block of up to segmentSize items.
+     *
+     * Items occupy items[lo..hi-1]. A segment created by addFirst starts
+     * empty at the right end (lo = hi = segmentSize) and grows left; one
+     * created by addLast starts at the left end and grows right.
+     *
+     * A spilled segment has items == null and keeps its data in a slot
+     * of the spill file.
+     */
+    private class Segment {
+        Item[] items;  // null while spilled
+        int lo;        // index of first item
+        int hi;        // index one past the last item
+        long offset;   // while spilled: where its slot starts in the spill file
+        int slotBytes; // while spilled: size of its slot
+        int bytes;     // while spilled: bytes actually written
+        Segment next;
+        Segment prev;
+
+        int count() {
+            return hi - lo;
+        }
+    }
+
+    private final int segmentSize;
+    private final int maxResident;
+    private final Serializer<Item> serializer;
+    private final Path spillDir;
+
+    private Path spillPath;        // created on the first spill
+    private FileChannel spillFile;
+    private long spillEnd;         // end of the file: no slot, used or free, goes past it
+    private final TreeMap<Long, Long> freeByOffset = new TreeMap<>();        // offset -> size
+    private final TreeMap<Long, TreeSet<Long>> freeBySize = new TreeMap<>(); // size -> offsets
+
+    private Segment first;   // head segment (always resident)
+    private Segment last;    // tail segment (always resident)
+    private int resident;    // number of segments on the heap
+    private Item[] spare;    // array of the last emptied segment (all null), or null
+    private long size;       // number of items
+
+    /**
+     * Deque of Strings that keeps at most 16 segments of 4096 items on the heap,
+     * spilling the rest into the system temp directory.
+     */
+    public static SpillingDeque<String> ofStrings() {
+        return new SpillingDeque<>(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_RESIDENT, STRINGS,
+                                   Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Construct an empty deque.
+     *
+     * The in-memory budget is segmentSize * maxResident items.
+     * maxResident must be at least 4 (the head and tail segments, and
+     * the segment next to each of them).
+     */
+    public SpillingDeque(int segmentSize, int maxResident,
+                         Serializer<Item> serializer, Path spillDir) {
+        if (segmentSize <= 0)
+            throw new IllegalArgumentException("Segment size must be > 0");
+        if (maxResident < 4)
+            throw new IllegalArgumentException("Need at least 4 resident segments");
+        if (serializer == null || spillDir == null)
+            throw new IllegalArgumentException("Serializer and spill directory are required");
+
+        this.segmentSize = segmentSize;
+        this.maxResident = maxResident;
+        this.serializer = serializer;
+        this.spillDir = spillDir;
+        // O(1)
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+        // O(1)
+    }
+
+    // Number of items, as a long: a spilling deque can outgrow an int.
+    public long size() {
+        return size;
+        // O(1)
+    }
+
+    // Number of segments currently held on the heap
+    public int residentSegments() {
+        return resident;
+        // O(1)
+    }
+
+    /**
+     * Add an item to the FRONT.
+     *
+     * If the head segment has no room on its left, a new head segment is
+     * linked in front of it, and the segment two behind it may be spilled.
+     */
+    public void addFirst(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        if (first == null || first.lo == 0) {
+            Segment s = newSegment(segmentSize);
+            s.next = first;
+            if (first == null) {
+                last = s;
+            } else {
+                first.prev = s;
+            }
+            first = s;
+            if (s.next != null)
+                spillIfMiddle(s.next.next);
+        }
+
+        first.items[--first.lo] = item;
+        size++;
+        // O(1) amortized
+    }
+
+    /**
+     * Add an item to the BACK.
+     */
+    public void addLast(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+
+        if (last == null || last.hi == segmentSize) {
+            Segment s = newSegment(0);
+            s.prev = last;
+            if (last == null) {
+                first = s;
+            } else {
+                last.next = s;
+            }
+            last = s;
+            if (s.prev != null)
+                spillIfMiddle(s.prev.prev);
+        }
+
+        last.items[last.hi++] = item;
+        size++;
+        // O(1) amortized
+    }
+
+    /**
+     * Remove and return the item from the FRONT.
+     *
+     * If that empties the head segment, the next segment becomes the head
+     * (reloading it from disk if it was spilled).
+     */
+    public Item removeFirst() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        Item item = first.items[first.lo];
+        first.items[first.lo++] = null; // avoid loitering
+        size--;
+
+        if (first.count() == 0) {
+            release(first);
+            first = first.next;
+            if (first == null) {
+                last = null;
+            } else {
+                first.prev = null;
+                load(first);
+            }
+        }
+
+        return item;
+        // O(1) amortized
+    }
+
+    /**
+     * Remove and return the item from the BACK.
+     */
+    public Item removeLast() {
+        if (isEmpty())
+            throw new NoSuchElementException("Deque is empty");
+
+        Item item = last.items[--last.hi];
+        last.items[last.hi] = null;
+        size--;
+
+        if (last.count() == 0) {
+            release(last);
+            last = last.prev;
+            if (last == null) {
+                first = null;
+            } else {
+                last.next = null;
+                load(last);
+            }
+        }
+
+        return item;
+        // O(1) amortized
+    }
+
+    /**
+     * Delete the spill file and empty the deque.
+     */
+    public void close() {
+        try {
+            if (spillFile != null) {
+                spillFile.close();
+                Files.deleteIfExists(spillPath);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete spill file " + spillPath, e);
+        }
+        finally {
+            spillFile = null;
+            spillPath = null;
+            spillEnd = 0;
+            freeByOffset.clear();
+            freeBySize.clear();
+        }
+        first = null;
+        last = null;
+        spare = null;
+        resident = 0;
+        size = 0;
+    }
+
+    // ----------------- Spilling -----------------
+
+    private Segment newSegment(int start) {
+        Segment s = new Segment();
+        s.items = spare != null ? spare : (Item[]) new Object[segmentSize];
+        spare = null;
+        s.lo = start;
+        s.hi = start;
+        resident++;
+        return s;
+    }
+
+    // s is an emptied end segment being unlinked; keep its array for reuse
+    private void release(Segment s) {
+        spare = s.items;
+        s.items = null;
+        resident--;
+    }
+
+    /**
+     * Spill s if it is at least two segments away from both ends and we
+     * are over budget.
+     */
+    private void spillIfMiddle(Segment s) {
+        if (s == null || s.items == null || nearEnd(s))
+            return;
+        if (resident > maxResident)
+            spill(s);
+    }
+
+    // s is an end segment, or right next to one
+    private boolean nearEnd(Segment s) {
+        return s == first || s == last || s.prev == first || s.next == last;
+    }
+
+    /**
+     * Write the items of s into a slot of the spill file:
+     *   [length][bytes][length][bytes]...
+     * then drop its array. O(segmentSize).
+     */
+    private void spill(Segment s) {
+        byte[][] encoded = new byte[s.count()][];
+        long bytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = serializer.toBytes(s.items[s.lo + i]);
+            bytes += Integer.BYTES + encoded[i].length;
+        }
+        if (bytes > Integer.MAX_VALUE - SLOT_ALIGN)
+            throw new IllegalStateException("Segment too large to spill; use a smaller segment size");
+
+        ByteBuffer buf = ByteBuffer.allocate((int) bytes);
+        for (byte[] b : encoded) {
+            buf.putInt(b.length);
+            buf.put(b);
+        }
+        buf.flip();
+
+        try {
+            s.slotBytes = (int) ((bytes + SLOT_ALIGN - 1) / SLOT_ALIGN * SLOT_ALIGN);
+            s.offset = allocateSlot(s.slotBytes);
+            s.bytes = (int) bytes;
+            long pos = s.offset;
+            while (buf.hasRemaining())
+                pos += spillFile.write(buf, pos);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill deque segment", e);
+        }
+
+        s.items = null;
+        resident--;
+    }
+
+    /**
+     * Read a spilled segment back onto the heap and free its slot.
+     */
+    private void load(Segment s) {
+        if (s.items != null)
+            return;
+
+        s.items = (Item[]) new Object[segmentSize];
+        readInto(s, s.items);
+        try {
+            freeSlot(s.offset, s.slotBytes);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot shrink spill file", e);
+        }
+        resident++;
+    }
+
+    /**
+     * Decode the items of spilled segment s into dst[s.lo..s.hi-1].
+     */
+    private void readInto(Segment s, Item[] dst) {
+        ByteBuffer buf = ByteBuffer.allocate(s.bytes);
+        try {
+            long pos = s.offset;
+            while (buf.hasRemaining()) {
+                int n = spillFile.read(buf, pos);
+                if (n < 0)
+                    throw new IOException("Spill file is shorter than expected");
+                pos += n;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot reload deque segment", e);
+        }
+
+        buf.flip();
+        for (int i = s.lo; i < s.hi; i++) {
+            byte[] b = new byte[buf.getInt()];
+            buf.get(b);
+            dst[i] = serializer.fromBytes(b);
+        }
+    }
+
+    /**
+     * Offset of a free slot of exactly slotBytes: the smallest free slot
+     * that fits (giving back what it has over), or a new one at the end.
+     * O(log number of free slots).
+     */
+    private long allocateSlot(int slotBytes) throws IOException {
+        if (spillFile == null) {
+            spillPath = Files.createTempFile(spillDir, "deque-", ".spill");
+            spillFile = FileChannel.open(spillPath, StandardOpenOption.READ,
+                                         StandardOpenOption.WRITE);
+        }
+
+        Map.Entry<Long, TreeSet<Long>> fit = freeBySize.ceilingEntry((long) slotBytes);
+        if (fit == null) {
+            long offset = spillEnd;
+            spillEnd += slotBytes;
+            return offset;
+        }
+
+        long offset = fit.getValue().first();
+        long size = fit.getKey();
+        removeFree(offset, size);
+        if (size > slotBytes)
+            addFree(offset + slotBytes, size - slotBytes);
+        return offset;
+    }
+
+    /**
+     * Give back the slot at offset, merged with free neighbours on either
+     * side. If that leaves free space at the end of the file, cut it off.
+     * O(log number of free slots).
+     */
+    private void freeSlot(long offset, long slotBytes) throws IOException {
+        Map.Entry<Long, Long> before = freeByOffset.floorEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == offset) {
+            removeFree(before.getKey(), before.getValue());
+            offset = before.getKey();
+            slotBytes += before.getValue();
+        }
+        Long after = freeByOffset.get(offset + slotBytes);
+        if (after != null) {
+            removeFree(offset + slotBytes, after);
+            slotBytes += after;
+        }
+
+        if (offset + slotBytes == spillEnd) {
+            spillEnd = offset;
+            spillFile.truncate(spillEnd);
+        }
+        else {
+            addFree(offset, slotBytes);
+        }
+    }
+
+    private void addFree(long offset, long slotBytes) {
+        freeByOffset.put(offset, slotBytes);
+        freeBySize.computeIfAbsent(slotBytes, k -> new TreeSet<>()).add(offset);
+    }
+
+    private void removeFree(long offset, long slotBytes) {
+        freeByOffset.remove(offset);
+        TreeSet<Long> offsets = freeBySize.get(slotBytes);
+        offsets.remove(offset);
+        if (offsets.isEmpty())
+            freeBySize.remove(slotBytes);
+    }
+
+    /**
+     * Iterator goes front to back.
+     *
+     * Spilled segments are decoded into a scratch array as we reach them,
+     * so iterating does not change what is resident.
+     */
+    public Iterator<Item> iterator() {
+        return new SegmentIterator();
+    }
+
+    private class SegmentIterator implements Iterator<Item> {
+        private Segment segment = first;
+        private Item[] current = segment == null ? null : segment.items;
+        private Item[] scratch;
+        private int index = segment == null ? 0 : segment.lo;
+
+        public boolean hasNext() {
+            return segment != null && index < segment.hi;
+            // O(1)
+        }
+
+        public Item next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Item item = current[index++];
+            if (index == segment.hi)
+                advance();
+            return item;
+            // O(1) amortized
+        }
+
+        private void advance() {
+            segment = segment.next;
+            if (segment == null)
+                return;
+
+            index = segment.lo;
+            if (segment.items != null) {
+                current = segment.items;
+            } else {
+                if (scratch == null)
+                    scratch = (Item[]) new Object[segmentSize];
+                readInto(segment, scratch);
+                current = scratch;
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Unit testing: push n items through a deque with a tiny budget
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+        try (SpillingDeque<String> d = new SpillingDeque<>(64, 4, STRINGS,
+                Path.of(System.getProperty("java.io.tmpdir")))) {
+            for (int i = 0; i < n; i++)
+                d.addLast("item" + i);
+            d.addFirst("front");
+
+            System.out.println("Size:     " + d.size());
+            System.out.println("Resident: " + d.residentSegments() + " segments");
+
+            long seen = 0;
+            for (String s : d)
+                seen++;
+            System.out.println("Iterated: " + seen);
+
+            System.out.println("Removed: " + d.removeFirst());
+            System.out.println("Removed: " + d.removeFirst());
+            System.out.println("Removed: " + d.removeLast());
+            while (!d.isEmpty())
+                d.removeFirst();
+            System.out.println("Drained, resident: " + d.residentSegments());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.NoSuchElementException;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * A RandomizedQueue where dequeue() and sample() pick item i with
+ * probability weight(i) / total weight, instead of uniformly.
+ *
+ * Items and weights live in resizing arrays, exactly like RandomizedQueue.
+ * On top of the weights we keep a FENWICK TREE (binary indexed tree):
+ *
+ *   tree[j] = sum of the weights in a block of slots ending at slot j
+ *
+ * so that we can, in O(log n):
+ *   - change one weight (walk up:   j += j & -j)
+ *   - find the slot where the running total first exceeds a random
+ *     target in [0, total) (walk down from the highest power of 2)
+ *
+ * dequeue() uses the same trick as RandomizedQueue: move the last item
+ * into the removed slot. That is two weight updates, still O(log n).
+ *
+ * enqueue/dequeue/sample = O(log n) (amortized, because of resizing)
+ *
+ * If the weights never change, AliasSampler draws in O(1).
+ */
+public class WeightedRandomizedQueue<Item> {
+
+    private Item[] items;      // items[0..size-1]
+    private double[] weights;  // weights[i] belongs to items[i]
+    private double[] tree;     // Fenwick tree over weights, 1-based: tree[1..capacity]
+    private int size;
+
+    // construct empty weighted queue
+    public WeightedRandomizedQueue() {
+        items = (Item[]) new Object[2];
+        weights = new double[2];
+        tree = new double[3];
+        size = 0;
+        // O(1)
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+        // O(1)
+    }
+
+    public int size() {
+        return size;
+        // O(1)
+    }
+
+    /**
+     * Sum of all weights.
+     */
+    public double totalWeight() {
+        return prefixSum(size);
+        // O(log n)
+    }
+
+    /**
+     * Add an item with the given (positive, finite) weight.
+     */
+    public void enqueue(Item item, double weight) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null");
+        if (!(weight > 0) || Double.isInfinite(weight))
+            throw new IllegalArgumentException("Weight must be positive and finite");
+
+        if (size == items.length)
+            resize(2 * items.length);
+
+        items[size] = item;
+        weights[size] = weight;
+        add(size, weight);
+        size++;
+        // O(log n) amortized
+    }
+
+    /**
+     * Remove and return a random item, chosen by weight.
+     */
+    public Item dequeue() {
+        if (isEmpty())
+            throw new NoSuchElementException("Queue is empty");
+
+        int r = select();
+        Item item = items[r];
+        int lastSlot = size - 1;
+
+        // Move the last item into slot r, then clear the last slot
+        add(r, weights[lastSlot] - weights[r]);
+        add(lastSlot, -weights[lastSlot]);
+        items[r] = items[lastSlot];
+        weights[r] = weights[lastSlot];
+        items[lastSlot] = null;
+        weights[lastSlot] = 0;
+        size--;
+
+        if (size > 0 && size == items.length / 4)
+            resize(items.length / 2);
+
+        return item;
+        // O(log n) amortized
+    }
+
+    /**
+     * Return a random item, chosen by weight, without removing it.
+     */
+    public Item sample() {
+        if (isEmpty())
+            throw new NoSuchElementException();
+
+        return items[select()];
+        // O(log n)
+    }
+
+    // ----------------- Fenwick tree -----------------
+
+    /**
+     * Slot of a weighted random item: the first slot whose prefix sum
+     * exceeds a uniform target in [0, total).
+     */
+    private int select() {
+        double target = StdRandom.uniform() * totalWeight();
+        int n = items.length;
+        int pos = 0;
+
+        for (int step = Integer.highestOneBit(n); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= n && tree[next] <= target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+
+        // pos is the 0-based slot. Rounding error in the tree can push the
+        // walk past the last item; clamp it back.
+        return Math.min(pos, size - 1);
+        // O(log n)
+    }
+
+    // weights[slot] changed by delta
+    private void add(int slot, double delta) {
+        for (int j = slot + 1; j < tree.length; j += j & -j)
+            tree[j] += delta;
+        // O(log n)
+    }
+
+    // Sum of weights[0..count-1]
+    private double prefixSum(int count) {
+        double sum = 0;
+        for (int j = count; j > 0; j -= j & -j)
+            sum += tree[j];
+        return sum;
+        // O(log n)
+    }
+
+    /**
+     * Resize the arrays and rebuild the tree from scratch.
+     *
+     * The in-place O(n) build pushes each node's sum up to its parent once.
+     * Rebuilding also discards any rounding error accumulated by updates.
+     */
+    private void resize(int capacity) {
+        Item[] copyItems = (Item[]) new Object[capacity];
+        double[] copyWeights = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            copyItems[i] = items[i];
+            copyWeights[i] = weights[i];
+        }
+        items = copyItems;
+        weights = copyWeights;
+
+        tree = new double[capacity + 1];
+        for (int j = 1; j <= capacity; j++) {
+            tree[j] += weights[j - 1];
+            int parent = j + (j & -j);
+            if (parent <= capacity)
+                tree[parent] += tree[j];
+        }
+        // O(n)
+    }
+
+    // Unit testing: a loaded die, drained by weight
+    public static void main(String[] args) {
+        WeightedRandomizedQueue<String> wq = new WeightedRandomizedQueue<>();
+        wq.enqueue("1", 1);
+        wq.enqueue("2", 1);
+        wq.enqueue("3", 1);
+        wq.enqueue("4", 1);
+        wq.enqueue("5", 1);
+        wq.enqueue("6", 5);
+
+        System.out.println("Total weight: " + wq.totalWeight());
+        System.out.println("Sample: " + wq.sample());
+
+        while (!wq.isEmpty())
+            System.out.println("Dequeued: " + wq.dequeue());
+    }
+}
@@ -0,0 +1,116 @@
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Throughput of weighted sampling: alias table and Fenwick tree
+ * against the baseline of a linear scan over the weights per draw.
+ *
+ * Static weights (draws only):
+ *   - linear scan:   StdRandom.discrete(frequencies), O(n) per draw
+ *   - AliasSampler:  O(1) per draw
+ *   - WeightedRandomizedQueue.sample(): O(log n) per draw
+ *
+ * Dynamic weights (remove one item by weight, add it back re-weighted):
+ *   - linear scan:   scan all weights, O(n) per operation
+ *   - WeightedRandomizedQueue.dequeue() + enqueue(): O(log n) per operation
+ *
+ * Example:
+ *   java WeightedSamplingBenchmark 1000000
+ */
+public class WeightedSamplingBenchmark {
+
+    public static void main(String[] args) {
+        int draws = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        for (int n : new int[] { 6, 100, 10000 }) {
+            double[] weights = new double[n];
+            Integer[] items = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = 1 + StdRandom.uniform(100);
+                items[i] = i;
+            }
+
+            System.out.println("n = " + n);
+            staticDraws(items, weights, draws);
+            dynamicChurn(items, weights, draws / 10);
+            System.out.println();
+        }
+    }
+
+    private static void staticDraws(Integer[] items, double[] weights, int draws) {
+        long sink = 0;
+
+        // The weights are whole numbers, so discrete() can take them as frequencies
+        int[] frequencies = new int[weights.length];
+        for (int i = 0; i < weights.length; i++)
+            frequencies[i] = (int) weights[i];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < draws; i++)
+            sink += StdRandom.discrete(frequencies);
+        report("linear scan sample", draws, start);
+
+        AliasSampler<Integer> alias = new AliasSampler<>(items, weights);
+        start = System.nanoTime();
+        for (int i = 0; i < draws; i++)
+            sink += alias.sample();
+        report("alias sample", draws, start);
+
+        WeightedRandomizedQueue<Integer> wq = new WeightedRandomizedQueue<>();
+        for (int i = 0; i < items.length; i++)
+            wq.enqueue(items[i], weights[i]);
+        start = System.nanoTime();
+        for (int i = 0; i < draws; i++)
+            sink += wq.sample();
+        report("fenwick sample", draws, start);
+
+        if (sink == 42)
+            System.out.println(); // keep the JIT from dropping the loops
+    }
+
+    /**
+     * Keep n items in the pool; each operation removes one by weight and
+     * puts it back with a fresh random weight.
+     */
+    private static void dynamicChurn(Integer[] items, double[] weights, int ops) {
+        int n = items.length;
+        long sink = 0;
+
+        // Baseline: linear scan over the weights, then overwrite the removed slot
+        Integer[] pool = items.clone();
+        double[] w = weights.clone();
+        long start = System.nanoTime();
+        for (int op = 0; op < ops; op++) {
+            double total = 0;
+            for (int i = 0; i < n; i++)
+                total += w[i];
+            double target = StdRandom.uniform() * total;
+            int r = 0;
+            while (r < n - 1 && target >= w[r]) {
+                target -= w[r];
+                r++;
+            }
+            sink += pool[r];
+            w[r] = 1 + StdRandom.uniform(100);
+        }
+        report("linear scan dequeue", ops, start);
+
+        WeightedRandomizedQueue<Integer> wq = new WeightedRandomizedQueue<>();
+        for (int i = 0; i < n; i++)
+            wq.enqueue(items[i], weights[i]);
+        start = System.nanoTime();
+        for (int op = 0; op < ops; op++) {
+            Integer item = wq.dequeue();
+            sink += item;
+            wq.enqueue(item, 1 + StdRandom.uniform(100));
+        }
+        report("fenwick dequeue", ops, start);
+
+        if (sink == 42)
+            System.out.println();
+    }
+
+    private static void report(String label, int ops, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("  %-20s %10.2f million ops/s%n", label, ops / seconds / 1e6);
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/*
+ * A singly linked list of ints stored as PARALLEL ARRAYS instead of nodes.
+ *
+ * Where Result.removeKthNodeFromEnd works on SinglyLinkedListNode objects
+ * (one object per element, a pointer to chase per step, and a dummy node
+ * allocated on every call), here:
+ *
+ *   values[i] = the data of node i
+ *   next[i]   = index of the node after node i (NIL = end of list)
+ *
+ * A "node" is just an index. Removed nodes go onto a FREE LIST (chained
+ * through next[]), and new nodes reuse them first, so after warm-up no
+ * operation allocates anything.
+ *
+ * Because the list knows its size, "k-th from the end" is just position
+ * size - k from the front, so a whole set of k's can be removed in one
+ * front-to-back pass that stops at the last target.
+ */
+class PooledLinkedList {
+
+    private static final int NIL = -1;
+
+    private int[] values;
+    private int[] next;
+
+    private int head = NIL;
+    private int tail = NIL;
+    private int free = NIL;   // first node of the free list
+    private int used;         // slots 0..used-1 have been handed out at least once
+    private int size;
+
+    PooledLinkedList() {
+        this(16);
+    }
+
+    PooledLinkedList(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be > 0");
+        }
+        values = new int[capacity];
+        next = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void addFirst(int value) {
+        int node = allocate();
+        values[node] = value;
+        next[node] = head;
+        head = node;
+        if (tail == NIL) {
+            tail = node;
+        }
+        size++;
+    }
+
+    void addLast(int value) {
+        int node = allocate();
+        values[node] = value;
+        next[node] = NIL;
+        if (tail == NIL) {
+            head = node;
+        } else {
+            next[tail] = node;
+        }
+        tail = node;
+        size++;
+    }
+
+    int removeFirst() {
+        if (head == NIL) {
+            throw new NoSuchElementException("List is empty");
+        }
+        int node = head;
+        int value = values[node];
+        head = next[node];
+        if (head == NIL) {
+            tail = NIL;
+        }
+        release(node);
+        size--;
+        return value;
+    }
+
+    /*
+     * Remove the nodes at the given positions FROM THE END (1-based, as in
+     * removeKthNodeFromEnd), all in one traversal.
+     *
+     * E.g. on 1..10, ks = {1, 5, 100} removes 10 and 6; 100 is out of
+     * range and ignored (just as removeKthNodeFromEnd leaves the list
+     * unchanged for an invalid k). Duplicates count once.
+     *
+     * ks is sorted in place, so the call itself allocates nothing.
+     * Returns the number of nodes removed.
+     */
+    int removeFromEnd(int[] ks) {
+        Arrays.sort(ks);
+
+        int prev = NIL;
+        int current = head;
+        int position = 0;     // position of current, counted from the front
+        int removed = 0;
+        int lastTarget = -1;
+
+        // Largest k = nearest to the front, so walk ks from the back
+        for (int t = ks.length - 1; t >= 0; t--) {
+            int k = ks[t];
+            if (k <= 0 || k > size) {
+                continue;
+            }
+            int target = size - k;
+            if (target == lastTarget) {
+                continue;
+            }
+            lastTarget = target;
+
+            while (position < target) {
+                prev = current;
+                current = next[current];
+                position++;
+            }
+
+            // Unlink current; prev stays where it is
+            int after = next[current];
+            if (prev == NIL) {
+                head = after;
+            } else {
+                next[prev] = after;
+            }
+            if (current == tail) {
+                tail = prev;
+            }
+            release(current);
+            removed++;
+
+            current = after;
+            position++;
+        }
+
+        size -= removed;
+        return removed;
+    }
+
+    /*
+     * Copy the values, front to back, into dst (which must hold size ints).
+     */
+    void toArray(int[] dst) {
+        int i = 0;
+        for (int node = head; node != NIL; node = next[node]) {
+            dst[i++] = values[node];
+        }
+    }
+
+    // ----------------- Pool -----------------
+
+    private int allocate() {
+        if (free != NIL) {
+            int node = free;
+            free = next[node];
+            return node;
+        }
+        if (used == values.length) {
+            values = Arrays.copyOf(values, 2 * used);
+            next = Arrays.copyOf(next, 2 * used);
+        }
+        return used++;
+    }
+
+    private void release(int node) {
+        next[node] = free;
+        free = node;
+    }
+
+    public static void main(String[] args) {
+        PooledLinkedList list = new PooledLinkedList();
+        for (int i = 1; i <= 10; i++) {
+            list.addLast(i);
+        }
+
+        int removed = list.removeFromEnd(new int[] { 1, 5, 100 });
+
+        int[] out = new int[list.size()];
+        list.toArray(out);
+        System.out.println("Removed " + removed + ": " + Arrays.toString(out));
+        // Removed 2: [1, 2, 3, 4, 5, 7, 8, 9]
+    }
+}
@@ -0,0 +1,516 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/*
+ * Bulk primality testing, for when PrimeNumberCheck.isPrime (trial division
+ * up to n/2, int only) is far too slow.
+ *
+ * - isPrime(long n): bit lookup in a cached sieve for small n,
+ *   deterministic Miller-Rabin for everything else (any long)
+ * - isPrime(long[] ns): the same, for a whole array, across cores
+ * - primesInRange(lo, hi): segmented sieve, segments sieved across cores
+ *
+ * The cached sieve is BIT-PACKED and stores ODD numbers only:
+ * bit i says whether 2i+1 is composite, so 1 MiB covers 16 million numbers.
+ */
+class PrimeEngine {
+
+ // Numbers below this are answered from the cached sieve
+ private static final long DEFAULT_SIEVE_LIMIT = 1L << 24;
+
+ // Largest cached sieve ensureSieve will build: 4 GiB of bits. Its
+ // long[] index must fit in an int (that alone allows up to about 2^38)
+ private static final long MAX_SIEVE_LIMIT = 1L << 36;
+
+ // Numbers per segment in primesInRange (a multiple of 128)
+ private static final int SEGMENT_SIZE = 1 << 19;
+
+ // primesInRange tests each number instead of sieving when hi - lo < sqrt(hi) / this
+ private static final long TEST_EACH_FRACTION = 64;
+
+ // ... or when sqrt(hi) is above this: every segment then loops over more
+ // than 7 million base primes, and sieving costs more per number than
+ // Miller-Rabin does (about 200 ns)
+ private static final long MAX_SIEVE_SQRT = 1L << 27;
+
+ // floor(sqrt(Long.MAX_VALUE)): the largest long whose square fits in a long
+ private static final long MAX_SQRT = 3037000499L;
+
+ // Arrays shorter than this are tested on the calling thread
+ private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+ // Deterministic Miller-Rabin bases: correct for every n < 3.3 * 10^24
+ private static final long[] BASES = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37 };
+
+ // Replaced (never modified) when grown, so readers need no lock
+ private static volatile Sieve cache;
+
+ public static void main(String[] args) {
+  System.out.println(isPrime(19)); // true
+  System.out.println(isPrime(49)); // false
+  System.out.println(isPrime(Long.MAX_VALUE)); // false: 7^2 * 73 * ...
+  System.out.println(isPrime(9223372036854775783L)); // true: largest long prime
+  System.out.println(Arrays.toString(primesInRange(100, 150)));
+
+  benchmark();
+ }
+
+ /*
+  * True if n is prime. Works for every long; negative numbers are not prime.
+  */
+ public static boolean isPrime(long n) {
+  if (n < 2) {
+   return false;
+  }
+  if ((n & 1) == 0) {
+   return n == 2;
+  }
+
+  Sieve s = sieve();
+  if (n < s.limit) {
+   return !s.isComposite(n);
+  }
+
+  for (long p : BASES) {
+   if (n % p == 0) {
+    return false;
+   }
+  }
+  return millerRabin(n);
+ }
+
+ /*
+  * isPrime for every value in ns, split across cores for big arrays.
+  */
+ public static boolean[] isPrime(long[] ns) {
+  boolean[] result = new boolean[ns.length];
+  sieve(); // build the cache once, before the workers race to do it
+
+  IntStream indices = IntStream.range(0, ns.length);
+  if (ns.length >= PARALLEL_THRESHOLD) {
+   indices = indices.parallel();
+  }
+  indices.forEach(i -> result[i] = isPrime(ns[i]));
+
+  return result;
+ }
+
+ /*
+  * All primes p with lo <= p < hi, in increasing order. Any 0 <= lo <= hi
+  * works, up to Long.MAX_VALUE.
+  *
+  * Segmented sieve: the odd base primes up to sqrt(hi) are themselves
+  * sieved segment by segment (from the small primes in the cached sieve)
+  * into an int[]; each segment of SEGMENT_SIZE numbers is then sieved by
+  * those base primes on its own, so segments run in parallel. The cached
+  * sieve is never grown.
+  *
+  * Each segment costs O(number of base primes), so sieving only pays off
+  * for hi up to about 2^54, and for windows that are not much narrower
+  * than sqrt(hi). Other ranges are tested number by number with isPrime
+  * (in parallel), which costs the same per number for any hi.
+  *
+  * Bounds are compared by differences, never as a + SEGMENT_SIZE or
+  * p * p >= b, so nothing overflows up to Long.MAX_VALUE.
+  */
+ public static long[] primesInRange(long lo, long hi) {
+  if (lo < 0 || hi < lo) {
+   throw new IllegalArgumentException("Need 0 <= lo <= hi");
+  }
+  lo = Math.max(lo, 2);
+  if (hi <= lo) {
+   return new long[0];
+  }
+
+  long root = sqrt(hi - 1);
+  if (root > MAX_SIEVE_SQRT || hi - lo < root / TEST_EACH_FRACTION) {
+   return LongStream.range(lo, hi).parallel().filter(PrimeEngine::isPrime).toArray();
+  }
+
+  int[] basePrimes = oddPrimesBelow(root + 1);
+  long[][] composite = sieveSegments(lo, hi, basePrimes);
+
+  long total = lo == 2 ? 1 : 0;
+  for (long[] bits : composite) {
+   for (long word : bits) {
+    total += Long.bitCount(~word);
+   }
+  }
+  if (total > Integer.MAX_VALUE - 8) {
+   throw new IllegalArgumentException("Too many primes in range for one array: " + total);
+  }
+
+  long[] primes = new long[(int) total];
+  int at = 0;
+  if (lo == 2) {
+   primes[at++] = 2;
+  }
+  for (int k = 0; k < composite.length; k++) {
+   long firstOdd = (lo + (long) k * SEGMENT_SIZE) | 1;
+   long[] bits = composite[k];
+   composite[k] = null; // let the segments go as we copy them out
+   for (int j = 0; j < bits.length; j++) {
+    for (long w = ~bits[j]; w != 0; w &= w - 1) {
+     primes[at++] = firstOdd + 2 * (64L * j + Long.numberOfTrailingZeros(w));
+    }
+   }
+  }
+  return primes;
+ }
+
+ /*
+  * Make sure the cached sieve covers every n < limit.
+  * Costs about limit / 16 bytes of memory; limit may be at most
+  * MAX_SIEVE_LIMIT = 2^36 (4 GiB), which isPrime never needs anyway.
+  */
+ public static void ensureSieve(long limit) {
+  if (limit > MAX_SIEVE_LIMIT) {
+   throw new IllegalArgumentException("Sieve limit must be at most " + MAX_SIEVE_LIMIT + ": " + limit);
+  }
+  if (sieve().limit < limit) {
+   synchronized (PrimeEngine.class) {
+    if (cache.limit < limit) {
+     cache = new Sieve(Math.min(MAX_SIEVE_LIMIT, Math.max(limit, 2 * cache.limit)));
+    }
+   }
+  }
+ }
+
+ private static Sieve sieve() {
+  Sieve s = cache;
+  if (s == null) {
+   synchronized (PrimeEngine.class) {
+    if (cache == null) {
+     cache = new Sieve(DEFAULT_SIEVE_LIMIT);
+    }
+    s = cache;
+   }
+  }
+  return s;
+ }
+
+ /*
+  * The odd primes below limit (at most MAX_SIEVE_SQRT + 1), by a
+  * segmented sieve whose own base primes come from the cached sieve.
+  */
+ private static int[] oddPrimesBelow(long limit) {
+  if (limit <= 3) {
+   return new int[0];
+  }
+  long smallLimit = sqrt(limit - 1) + 1; // <= 11,586, always in the cached sieve
+  Sieve s = sieve();
+  int[] small = new int[(int) (smallLimit / 2)];
+  int count = 0;
+  for (long n = 3; n < smallLimit; n += 2) {
+   if (!s.isComposite(n)) {
+    small[count++] = (int) n;
+   }
+  }
+  small = Arrays.copyOf(small, count);
+  long[][] composite = sieveSegments(3, limit, small);
+
+  int total = 0;
+  for (long[] bits : composite) {
+   for (long word : bits) {
+    total += Long.bitCount(~word);
+   }
+  }
+  int[] primes = new int[total];
+  int at = 0;
+  for (int k = 0; k < composite.length; k++) {
+   long firstOdd = (3 + (long) k * SEGMENT_SIZE) | 1;
+   long[] bits = composite[k];
+   for (int j = 0; j < bits.length; j++) {
+    for (long w = ~bits[j]; w != 0; w &= w - 1) {
+     primes[at++] = (int) (firstOdd + 2 * (64L * j + Long.numberOfTrailingZeros(w)));
+    }
+   }
+  }
+  return primes;
+ }
+
+ /*
+  * Composite bits (see sieveSegment) of each SEGMENT_SIZE segment of
+  * [lo, hi), sieved in parallel. lo >= 2.
+  */
+ private static long[][] sieveSegments(long lo, long hi, int[] basePrimes) {
+  int segments = (int) ((hi - lo - 1) / SEGMENT_SIZE + 1);
+  return IntStream.range(0, segments)
+                  .parallel()
+                  .mapToObj(k -> {
+                   long a = lo + (long) k * SEGMENT_SIZE;
+                   long b = hi - a <= SEGMENT_SIZE ? hi : a + SEGMENT_SIZE;
+                   return sieveSegment(a, b, basePrimes);
+                  })
+                  .toArray(long[][]::new);
+ }
+
+ /*
+  * Sieve the odd numbers of [a, b), a >= 2, by the odd basePrimes:
+  * bit i of the result is set if the i-th odd number
+  * at or after a is composite. Bits past the end are set too, so the
+  * primes are exactly the clear bits.
+  */
+ private static long[] sieveSegment(long a, long b, int[] basePrimes) {
+  long firstOdd = a | 1;
+  int odds = (int) Math.max(0, (b - firstOdd + 1) / 2);
+  long[] composite = new long[(odds + 63) / 64];
+  if ((odds & 63) != 0) {
+   composite[composite.length - 1] |= -1L << odds;
+  }
+
+  for (long p : basePrimes) {
+   if (p > (b - 1) / p) { // p * p >= b, without overflowing
+    break;
+   }
+
+   // Offset from firstOdd of the first odd multiple of p in the segment,
+   // but never p itself. Offsets stay small, so nothing overflows.
+   long square = p * p; // < b
+   long offset;
+   if (square >= firstOdd) {
+    offset = square - firstOdd;
+   } else {
+    long r = firstOdd % p;
+    offset = r == 0 ? 0 : p - r;
+    if ((offset & 1) == 1) { // firstOdd + offset is even
+     offset += p;
+    }
+   }
+   for (long m = offset / 2; m < odds; m += p) {
+    composite[(int) (m >>> 6)] |= 1L << m;
+   }
+  }
+  return composite;
+ }
+
+ // floor(sqrt(n)) for n >= 0, exact for every long
+ private static long sqrt(long n) {
+  long r = Math.min((long) Math.sqrt((double) n), MAX_SQRT);
+  while (r * r > n) {
+   r--;
+  }
+  while (r < MAX_SQRT && (r + 1) * (r + 1) <= n) {
+   r++;
+  }
+  return r;
+ }
+
+ // ----------------- Miller-Rabin -----------------
+
+ /*
+  * Deterministic Miller-Rabin for odd n > 37.
+  *
+  * Write n - 1 = d * 2^s with d odd. n is prime iff, for every base a,
+  * a^d == 1 or a^(d * 2^r) == -1 (mod n) for some r < s.
+  *
+  * Products of two numbers below n need up to 126 bits, so for large n
+  * we multiply in MONTGOMERY form: x is stored as x * 2^64 mod n, and
+  * the reduction needs only multiplications and one subtraction.
+  */
+ private static boolean millerRabin(long n) {
+  long d = n - 1;
+  int s = Long.numberOfTrailingZeros(d);
+  d >>>= s;
+
+  if (n < MAX_SQRT) { // n^2 fits in a long: plain % is enough
+   for (long a : BASES) {
+    long x = powMod(a % n, d, n);
+    if (x == 1 || x == n - 1) {
+     continue;
+    }
+    boolean witness = true;
+    for (int r = 1; r < s && witness; r++) {
+     x = x * x % n;
+     witness = x != n - 1;
+    }
+    if (witness) {
+     return false;
+    }
+   }
+   return true;
+  }
+
+  Montgomery m = new Montgomery(n);
+  long one = m.one;
+  long minusOne = n - one;
+  for (long a : BASES) {
+   long x = m.pow(m.toMontgomery(a), d);
+   if (x == one || x == minusOne) {
+    continue;
+   }
+   boolean witness = true;
+   for (int r = 1; r < s && witness; r++) {
+    x = m.multiply(x, x);
+    witness = x != minusOne;
+   }
+   if (witness) {
+    return false;
+   }
+  }
+  return true;
+ }
+
+ private static long powMod(long base, long e, long n) {
+  long result = 1;
+  while (e > 0) {
+   if ((e & 1) == 1) {
+    result = result * base % n;
+   }
+   base = base * base % n;
+   e >>= 1;
+  }
+  return result;
+ }
+
+ /*
+  * Montgomery arithmetic modulo an odd n < 2^63, with R = 2^64.
+  */
+ private static final class Montgomery {
+  final long n;
+  final long nInverse; // n^-1 mod 2^64
+  final long one;      // R mod n
+  final long rSquared; // R^2 mod n
+
+  Montgomery(long n) {
+   this.n = n;
+
+   // Newton's iteration doubles the correct low bits each step: 3 -> 96
+   long inv = n;
+   for (int i = 0; i < 5; i++) {
+    inv *= 2 - n * inv;
+   }
+   this.nInverse = inv;
+
+   this.one = Long.remainderUnsigned(-n, n);
+   long r2 = one;
+   for (int i = 0; i < 64; i++) { // doubling 64 times multiplies by R
+    r2 <<= 1; // < 2^64 because r2 < n < 2^63
+    if (Long.compareUnsigned(r2, n) >= 0) {
+     r2 -= n;
+    }
+   }
+   this.rSquared = r2;
+  }
+
+  long toMontgomery(long a) {
+   return multiply(a % n, rSquared);
+  }
+
+  /*
+   * a * b / R mod n. With t = a * b and m = t * n^-1 (mod 2^64),
+   * m * n has the same low 64 bits as t, so (t - m * n) / R is just
+   * the difference of the high halves.
+   */
+  long multiply(long a, long b) {
+   long hi = Math.multiplyHigh(a, b); // a, b >= 0, so signed = unsigned
+   long lo = a * b;
+   long m = lo * nInverse;
+   long r = hi - unsignedMultiplyHigh(m, n);
+   return r < 0 ? r + n : r;
+  }
+
+  long pow(long base, long e) {
+   long result = one;
+   while (e > 0) {
+    if ((e & 1) == 1) {
+     result = multiply(result, base);
+    }
+    base = multiply(base, base);
+    e >>>= 1;
+   }
+   return result;
+  }
+
+  private static long unsignedMultiplyHigh(long x, long y) {
+   return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+  }
+ }
+
+ // ----------------- Cached sieve -----------------
+
+ /*
+  * Sieve of Eratosthenes over the odd numbers below limit.
+  * Immutable once built.
+  */
+ private static final class Sieve {
+  final long limit;
+  final long[] bits; // bit i set = 2i+1 is composite
+
+  Sieve(long limit) {
+   this.limit = limit;
+   long odds = limit / 2;
+   this.bits = new long[(int) ((odds + 63) / 64)];
+
+   for (long i = 1; (2 * i + 1) * (2 * i + 1) < limit; i++) {
+    if ((bits[(int) (i >>> 6)] & (1L << i)) == 0) {
+     long p = 2 * i + 1;
+     for (long j = p * p / 2; j < odds; j += p) {
+      bits[(int) (j >>> 6)] |= 1L << j;
+     }
+    }
+   }
+  }
+
+  // n odd, n < limit
+  boolean isComposite(long n) {
+   long i = n >>> 1;
+   return n == 1 || (bits[(int) (i >>> 6)] & (1L << i)) != 0;
+  }
+ }
+
+ // ----------------- Benchmark -----------------
+
+ /*
+  * Compare against the original trial division (PrimeNumberCheck.isPrime).
+  * Trial division is O(n) per prime, so it only gets small inputs.
+  */
+ private static void benchmark() {
+  Random random = new Random(42);
+  int count = 20000;
+  long[] ns = new long[count];
+  for (int i = 0; i < count; i++) {
+   ns[i] = random.nextInt(1000000);
+  }
+
+  long start = System.nanoTime();
+  int trial = 0;
+  for (long n : ns) {
+   if (PrimeNumberCheck.isPrime((int) n)) {
+    trial++;
+   }
+  }
+  report("trial division, n < 10^6", count, start);
+
+  start = System.nanoTime();
+  int engine = 0;
+  for (boolean b : isPrime(ns)) {
+   if (b) {
+    engine++;
+   }
+  }
+  report("engine batch,   n < 10^6", count, start);
+  System.out.println("  primes found: " + trial + " vs " + engine);
+
+  count = 1000000;
+  long[] big = new long[count];
+  for (int i = 0; i < count; i++) {
+   big[i] = random.nextLong() >>> 1;
+  }
+  start = System.nanoTime();
+  isPrime(big);
+  report("engine batch,   random longs", count, start);
+
+  start = System.nanoTime();
+  long[] primes = primesInRange(1000000000L, 1100000000L);
+  report("segmented sieve [10^9, 1.1*10^9)", 100000000, start);
+  System.out.println("  primes found: " + primes.length);
+ }
+
+ private static void report(String label, int count, long startNanos) {
+  double seconds = (System.nanoTime() - startNanos) / 1e9;
+  System.out.printf("%-34s %12.0f numbers/s%n", label, count / seconds);
+ }
+}
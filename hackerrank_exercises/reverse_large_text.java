@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Reverses UTF-8 text files of any size, in bounded memory.
+ *
+ * StringPrograms.reverse needs the whole text in a String; here we only
+ * ever hold two blocks of blockBytes (1 MiB by default).
+ *
+ * Three modes:
+ *   WHOLE_FILE  "ab\ncd\n" -> "\ndc\nba"   every code point, end to start
+ *   EACH_LINE   "ab\ncd\n" -> "ba\ndc\n"   each line reversed, lines in place
+ *   LINE_ORDER  "ab\ncd\n" -> "cd\nab\n"   lines in reverse order (like tac)
+ *
+ * Reversal is by CODE POINT, done directly on the UTF-8 bytes:
+ * reverse all the bytes, then put the bytes of each multi-byte character
+ * back in order. In reversed bytes a character shows up as its
+ * continuation bytes (10xxxxxx) followed by its lead byte, so those runs
+ * are easy to find. Nothing is decoded, which keeps it at I/O speed.
+ *
+ * WHOLE_FILE reads blocks from the END of the file backwards. A block
+ * boundary can fall inside a character; we then move the block start
+ * forward past the continuation bytes, and they go with the next block.
+ *
+ * In the line modes a line ends at '\n'; a '\r' just before it stays
+ * with the line ending in EACH_LINE, so CRLF files keep their CRLFs.
+ */
+class TextReverser {
+
+ enum Mode { WHOLE_FILE, EACH_LINE, LINE_ORDER }
+
+ private static final int DEFAULT_BLOCK_BYTES = 1 << 20;
+
+ public static void main(String[] args) throws IOException {
+  // java TextReverser in.txt out.txt [WHOLE_FILE|EACH_LINE|LINE_ORDER]
+  Mode mode = args.length > 2 ? Mode.valueOf(args[2]) : Mode.WHOLE_FILE;
+
+  long start = System.nanoTime();
+  reverse(Path.of(args[0]), Path.of(args[1]), mode);
+  double seconds = (System.nanoTime() - start) / 1e9;
+
+  System.out.printf("%s in %.2f s%n", mode, seconds);
+ }
+
+ public static void reverse(Path in, Path out, Mode mode) throws IOException {
+  reverse(in, out, mode, DEFAULT_BLOCK_BYTES);
+ }
+
+ public static void reverse(Path in, Path out, Mode mode, int blockBytes) throws IOException {
+  if (mode == null)
+   throw new IllegalArgumentException("Mode is required");
+  if (blockBytes < 16)
+   throw new IllegalArgumentException("Block size must be at least 16 bytes");
+
+  try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+       FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE,
+                                          StandardOpenOption.TRUNCATE_EXISTING,
+                                          StandardOpenOption.WRITE)) {
+   Output output = new Output(dst, blockBytes);
+   byte[] block = new byte[blockBytes];
+
+   switch (mode) {
+    case WHOLE_FILE:
+     reverseRange(src, 0, src.size(), block, output);
+     break;
+    case EACH_LINE:
+     reverseEachLine(src, block, output);
+     break;
+    default:
+     reverseLineOrder(src, block, output);
+     break;
+   }
+   output.flush();
+  }
+ }
+
+ /*
+  * Write the code points of bytes [from, to) of the file in reverse order.
+  */
+ private static void reverseRange(FileChannel src, long from, long to, byte[] block,
+                                  Output output) throws IOException {
+  long end = to;
+  while (end > from) {
+   long start = Math.max(from, end - block.length);
+   int n = read(src, start, end, block);
+
+   // Don't split a character: leave its continuation bytes for the next block
+   int skip = 0;
+   if (start > from) {
+    while (skip < n && isContinuation(block[skip]))
+     skip++;
+    if (skip == n) // not valid UTF-8; just treat the bytes as they are
+     skip = 0;
+   }
+
+   reverseCodePoints(block, skip, n);
+   output.write(block, skip, n - skip);
+   end = start + skip;
+  }
+ }
+
+ private static void reverseEachLine(FileChannel src, byte[] block, Output output)
+   throws IOException {
+  long size = src.size();
+  long pos = 0;
+
+  while (pos < size) {
+   int n = read(src, pos, Math.min(size, pos + block.length), block);
+   boolean lastBlock = pos + n == size;
+
+   int lineStart = 0;
+   for (int i = 0; i < n; i++) {
+    if (block[i] == '\n') {
+     int contentEnd = (i > lineStart && block[i - 1] == '\r') ? i - 1 : i;
+     reverseCodePoints(block, lineStart, contentEnd);
+     output.write(block, lineStart, i + 1 - lineStart);
+     lineStart = i + 1;
+    }
+   }
+
+   if (lastBlock) {
+    // Last line has no '\n'
+    reverseCodePoints(block, lineStart, n);
+    output.write(block, lineStart, n - lineStart);
+    pos = size;
+   } else if (lineStart > 0) {
+    // Re-read the unfinished line as the start of the next block
+    pos += lineStart;
+   } else {
+    // A line longer than a whole block: reverse it straight from the file
+    long newline = indexOfNewline(src, pos + n, size, block);
+    long contentEnd = newline;
+    if (newline < size && byteAt(src, newline - 1) == '\r')
+     contentEnd--;
+    reverseRange(src, pos, contentEnd, block, output);
+    for (long p = contentEnd; p < Math.min(size, newline + 1); p++)
+     output.write(byteAt(src, p));
+    pos = newline + 1;
+   }
+  }
+ }
+
+ /*
+  * Read blocks backwards; each '\n' found ends the line after it.
+  * Lines are copied out unchanged, joined by '\n'.
+  */
+ private static void reverseLineOrder(FileChannel src, byte[] block, Output output)
+   throws IOException {
+  long size = src.size();
+  if (size == 0)
+   return;
+
+  boolean trailingNewline = byteAt(src, size - 1) == '\n';
+  long lineEnd = trailingNewline ? size - 1 : size; // end of the line being collected
+  long blockStart = lineEnd; // block holds [blockStart, blockEnd) of the file
+  long blockEnd = lineEnd;
+  boolean first = true;
+
+  while (blockStart > 0) {
+   blockEnd = blockStart;
+   blockStart = Math.max(0, blockEnd - block.length);
+   int n = read(src, blockStart, blockEnd, block);
+
+   for (int i = n - 1; i >= 0; i--) {
+    if (block[i] == '\n') {
+     long lineStart = blockStart + i + 1;
+     if (!first)
+      output.write((byte) '\n');
+     first = false;
+     copy(src, lineStart, lineEnd, block, blockStart, blockEnd, output);
+     lineEnd = lineStart - 1;
+    }
+   }
+  }
+
+  // The first line of the file
+  if (!first)
+   output.write((byte) '\n');
+  copy(src, 0, lineEnd, block, blockStart, blockEnd, output);
+
+  if (trailingNewline)
+   output.write((byte) '\n');
+ }
+
+ /*
+  * Write bytes [from, to) of the file: from the block if it holds them all
+  * (it covers [blockStart, blockEnd)), otherwise straight from the file.
+  */
+ private static void copy(FileChannel src, long from, long to, byte[] block, long blockStart,
+                          long blockEnd, Output output) throws IOException {
+  if (from >= blockStart && to <= blockEnd) {
+   output.write(block, (int) (from - blockStart), (int) (to - from));
+  } else {
+   output.transferFrom(src, from, to - from);
+  }
+ }
+
+ // ----------------- Bytes -----------------
+
+ /*
+  * Reverse the code points in bytes[from..to-1], in place.
+  */
+ static void reverseCodePoints(byte[] bytes, int from, int to) {
+  for (int i = from, j = to - 1; i < j; i++, j--) {
+   byte t = bytes[i];
+   bytes[i] = bytes[j];
+   bytes[j] = t;
+  }
+
+  // Each multi-byte character is now "continuation bytes, lead byte": flip it back
+  int i = from;
+  while (i < to) {
+   if (!isContinuation(bytes[i])) {
+    i++;
+    continue;
+   }
+   int j = i;
+   while (j < to && isContinuation(bytes[j]))
+    j++;
+   if (j < to) {
+    for (int a = i, b = j; a < b; a++, b--) {
+     byte t = bytes[a];
+     bytes[a] = bytes[b];
+     bytes[b] = t;
+    }
+    j++;
+   }
+   i = j;
+  }
+ }
+
+ private static boolean isContinuation(byte b) {
+  return (b & 0xC0) == 0x80;
+ }
+
+ // Read bytes [from, to) of the file into block[0..]; returns the count
+ private static int read(FileChannel src, long from, long to, byte[] block) throws IOException {
+  ByteBuffer buf = ByteBuffer.wrap(block, 0, (int) (to - from));
+  long pos = from;
+  while (buf.hasRemaining()) {
+   int n = src.read(buf, pos);
+   if (n < 0)
+    throw new IOException("File shrank while reversing it");
+   pos += n;
+  }
+  return (int) (to - from);
+ }
+
+ private static byte byteAt(FileChannel src, long pos) throws IOException {
+  ByteBuffer one = ByteBuffer.allocate(1);
+  if (src.read(one, pos) != 1)
+   throw new IOException("File shrank while reversing it");
+  return one.get(0);
+ }
+
+ // Position of the next '\n' at or after pos, or size if there is none
+ private static long indexOfNewline(FileChannel src, long pos, long size, byte[] block)
+   throws IOException {
+  while (pos < size) {
+   int n = read(src, pos, Math.min(size, pos + block.length), block);
+   for (int i = 0; i < n; i++) {
+    if (block[i] == '\n')
+     return pos + i;
+   }
+   pos += n;
+  }
+  return size;
+ }
+
+ /*
+  * Buffered writes to the output channel.
+  */
+ private static final class Output {
+  private final FileChannel ch;
+  private final ByteBuffer buf;
+
+  Output(FileChannel ch, int capacity) {
+   this.ch = ch;
+   this.buf = ByteBuffer.allocate(capacity);
+  }
+
+  void write(byte b) throws IOException {
+   if (!buf.hasRemaining())
+    flush();
+   buf.put(b);
+  }
+
+  void write(byte[] bytes, int off, int len) throws IOException {
+   if (len > buf.remaining())
+    flush();
+   if (len > buf.capacity()) {
+    ch.write(ByteBuffer.wrap(bytes, off, len));
+   } else {
+    buf.put(bytes, off, len);
+   }
+  }
+
+  // Copy file bytes without going through the heap
+  void transferFrom(FileChannel src, long from, long len) throws IOException {
+   flush();
+   while (len > 0) {
+    long n = src.transferTo(from, len, ch);
+    from += n;
+    len -= n;
+   }
+  }
+
+  void flush() throws IOException {
+   buf.flip();
+   while (buf.hasRemaining())
+    ch.write(buf);
+   buf.clear();
+  }
+ }
+}
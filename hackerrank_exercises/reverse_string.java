@@ -10,14 +10,9 @@ public class StringPrograms {
   if (in == null)
    throw new IllegalArgumentException("Null is not valid input");
 
-  StringBuilder out = new StringBuilder();
-
-  char[] chars = in.toCharArray();
-
-  for (int i = chars.length - 1; i >= 0; i--)
-   out.append(chars[i]);
-
-  return out.toString();
+  // StringBuilder.reverse() keeps surrogate pairs (e.g. emoji) in order,
+  // where reversing char by char would split them
+  return new StringBuilder(in).reverse().toString();
  }
 
 }
\ No newline at end of file